@@ -1,5 +1,12 @@
 import React, {Component, PropTypes} from 'react';
-import {StyleSheet, requireNativeComponent, NativeModules, View} from 'react-native';
+import {
+  StyleSheet,
+  requireNativeComponent,
+  NativeModules,
+  View,
+  DeviceEventEmitter,
+  findNodeHandle,
+} from 'react-native';
 import resolveAssetSource from 'react-native/Libraries/Image/resolveAssetSource';
 import VideoResizeMode from './VideoResizeMode.js';
 
@@ -9,8 +16,172 @@ const styles = StyleSheet.create({
   },
 });
 
+// Android sends the progress of every playing video in a single batched event per tick.
+const progressListeners = {};
+let progressSubscription = null;
+
+function onProgressBatch(batch) {
+  for (let i = 0; i < batch.target.length; i++) {
+    const listener = progressListeners[batch.target[i]];
+    if (listener) {
+      listener({
+        currentTime: batch.currentTime[i],
+        playableDuration: batch.playableDuration[i],
+      }, batch.bufferedRanges[i]);
+    }
+  }
+}
+
+function addProgressListener(tag, listener) {
+  progressListeners[tag] = listener;
+  if (!progressSubscription) {
+    progressSubscription = DeviceEventEmitter.addListener('onVideoProgressBatch', onProgressBatch);
+  }
+}
+
+function removeProgressListener(tag) {
+  delete progressListeners[tag];
+  if (progressSubscription && Object.keys(progressListeners).length === 0) {
+    progressSubscription.remove();
+    progressSubscription = null;
+  }
+}
+
+function toNativeSource(source) {
+  const resolvedSource = resolveAssetSource(source) || {};
+
+  let uri = resolvedSource.uri;
+  if (uri && uri.match(/^\//)) {
+    uri = `file://${uri}`;
+  }
+
+  const isNetwork = !!(uri && uri.match(/^https?:/));
+  const isAsset = !!(uri && uri.match(/^(assets-library|file|content|asset):/));
+
+  return {
+    uri,
+    isNetwork,
+    isAsset,
+    type: resolvedSource.type || 'mp4',
+    cache: !!resolvedSource.cache,
+    offset: resolvedSource.offset || 0,
+    length: resolvedSource.length == null ? -1 : resolvedSource.length,
+    headers: resolvedSource.headers || null,
+  };
+}
+
+function callThumbnails(method, ...args) {
+  return new Promise((resolve, reject) => {
+    if (!NativeModules.RCTVideoThumbnails) {
+      reject(new Error('Video thumbnails are not supported on this platform'));
+      return;
+    }
+    NativeModules.RCTVideoThumbnails[method](...args, (error, result) => {
+      if (error) {
+        reject(new Error(error));
+      } else {
+        resolve(result);
+      }
+    });
+  });
+}
+
+function callDownloads(method, ...args) {
+  return new Promise((resolve, reject) => {
+    if (!NativeModules.RCTVideoDownloads) {
+      reject(new Error('Video downloads are not supported on this platform'));
+      return;
+    }
+    NativeModules.RCTVideoDownloads[method](...args, (error) => {
+      if (error) {
+        reject(new Error(error));
+      } else {
+        resolve();
+      }
+    });
+  });
+}
+
+// Preloading is only an optimization, so platforms without it resolve right away.
+function callPreloader(method, ...args) {
+  return new Promise((resolve, reject) => {
+    if (!NativeModules.VideoPreloader) {
+      resolve();
+      return;
+    }
+    NativeModules.VideoPreloader[method](...args, (error) => {
+      if (error) {
+        reject(new Error(error));
+      } else {
+        resolve();
+      }
+    });
+  });
+}
+
 export default class Video extends Component {
 
+  static preload(source) {
+    return callPreloader('preload', toNativeSource(source));
+  }
+
+  static cancelPreload(source) {
+    return callPreloader('cancel', toNativeSource(source));
+  }
+
+  static prewarm(urls) {
+    if (NativeModules.VideoPreloader) {
+      NativeModules.VideoPreloader.prewarm(urls);
+    }
+  }
+
+  static getFrame(source, time, options = {}) {
+    return callThumbnails('getFrame', toNativeSource(source), time, options);
+  }
+
+  static getSpriteSheet(source, options) {
+    return callThumbnails('getSpriteSheet', toNativeSource(source), options);
+  }
+
+  static download(source) {
+    return callDownloads('download', toNativeSource(source));
+  }
+
+  static pauseDownload(source) {
+    if (NativeModules.RCTVideoDownloads) {
+      NativeModules.RCTVideoDownloads.pause(toNativeSource(source).uri);
+    }
+  }
+
+  static removeDownload(source) {
+    if (NativeModules.RCTVideoDownloads) {
+      NativeModules.RCTVideoDownloads.remove(toNativeSource(source).uri);
+    }
+  }
+
+  static getDownloads() {
+    return new Promise((resolve) => {
+      if (!NativeModules.RCTVideoDownloads) {
+        resolve([]);
+        return;
+      }
+      NativeModules.RCTVideoDownloads.getDownloads(resolve);
+    });
+  }
+
+  static addDownloadListener(listener) {
+    return DeviceEventEmitter.addListener('onVideoDownload', listener);
+  }
+
+  componentDidMount() {
+    this._tag = findNodeHandle(this._root);
+    addProgressListener(this._tag, this._onProgressBatchItem);
+  }
+
+  componentWillUnmount() {
+    removeProgressListener(this._tag);
+  }
+
   setNativeProps(nativeProps) {
     this._root.setNativeProps(nativeProps);
   }
@@ -27,6 +198,30 @@ export default class Video extends Component {
     this.setNativeProps({ fullscreen: false });
   };
 
+  // Resolves with the current position in seconds, or null before anything has loaded.
+  getCurrentPosition = () => new Promise((resolve, reject) => {
+    if (!NativeModules.RCTVideoClock) {
+      reject(new Error('getCurrentPosition is not supported on this platform'));
+      return;
+    }
+    NativeModules.RCTVideoClock.getPosition(this._tag, (clock) => {
+      resolve(clock ? clock.position : null);
+    });
+  });
+
+  // Extrapolates the position in seconds from the last onClock event, without a bridge round trip.
+  getEstimatedPosition = () => {
+    const clock = this._clock;
+    if (!clock) {
+      return null;
+    }
+    const position = clock.position + ((Date.now() - clock.timestamp) / 1000) * clock.rate;
+    if (!(clock.duration > 0)) {
+      return position;
+    }
+    return clock.looping ? position % clock.duration : Math.min(position, clock.duration);
+  };
+
   _assignRoot = (component) => {
     this._root = component;
   };
@@ -55,6 +250,19 @@ export default class Video extends Component {
     }
   };
 
+  // Buffered ranges are only sent when they change, as flat [start, end, ...] arrays in seconds.
+  _onProgressBatchItem = (data, changedRanges) => {
+    if (changedRanges) {
+      this._bufferedRanges = [];
+      for (let i = 0; i + 1 < changedRanges.length; i += 2) {
+        this._bufferedRanges.push({ start: changedRanges[i], end: changedRanges[i + 1] });
+      }
+    }
+    if (this.props.onProgress) {
+      this.props.onProgress(Object.assign(data, { bufferedRanges: this._bufferedRanges || [] }));
+    }
+  };
+
   _onSeek = (event) => {
     if (this.props.onSeek) {
       this.props.onSeek(event.nativeEvent);
@@ -109,23 +317,39 @@ export default class Video extends Component {
     }
   };
 
+  _onPlaybackStats = (event) => {
+    if (this.props.onPlaybackStats) {
+      this.props.onPlaybackStats(event.nativeEvent);
+    }
+  };
+
+  _onPlaylistItemChange = (event) => {
+    if (this.props.onPlaylistItemChange) {
+      this.props.onPlaylistItemChange(event.nativeEvent);
+    }
+  };
+
   _onPlaybackRateChange = (event) => {
     if (this.props.onPlaybackRateChange) {
       this.props.onPlaybackRateChange(event.nativeEvent);
     }
   };
 
-  render() {
-    const resizeMode = this.props.resizeMode;
-    const source = resolveAssetSource(this.props.source) || {};
+  _onClock = (event) => {
+    this._clock = event.nativeEvent;
+    if (this.props.onClock) {
+      this.props.onClock(event.nativeEvent);
+    }
+  };
 
-    let uri = source.uri;
-    if (uri && uri.match(/^\//)) {
-      uri = `file://${uri}`;
+  _onRecovery = (event) => {
+    if (this.props.onRecovery) {
+      this.props.onRecovery(event.nativeEvent);
     }
+  };
 
-    const isNetwork = !!(uri && uri.match(/^https?:/));
-    const isAsset = !!(uri && uri.match(/^(assets-library|file|content):/));
+  render() {
+    const resizeMode = this.props.resizeMode;
 
     let nativeResizeMode;
     if (resizeMode === VideoResizeMode.stretch) {
@@ -142,12 +366,8 @@ export default class Video extends Component {
     Object.assign(nativeProps, {
       style: [styles.base, nativeProps.style],
       resizeMode: nativeResizeMode,
-      src: {
-        uri,
-        isNetwork,
-        isAsset,
-        type: source.type || 'mp4',
-      },
+      src: toNativeSource(this.props.source || (this.props.playlist && this.props.playlist[0])),
+      playlist: this.props.playlist && this.props.playlist.map(toNativeSource),
       onVideoLoadStart: this._onLoadStart,
       onVideoLoad: this._onLoad,
       onVideoError: this._onError,
@@ -162,6 +382,10 @@ export default class Video extends Component {
       onPlaybackStalled: this._onPlaybackStalled,
       onPlaybackResume: this._onPlaybackResume,
       onPlaybackRateChange: this._onPlaybackRateChange,
+      onPlaybackStats: this._onPlaybackStats,
+      onPlaylistItemChange: this._onPlaylistItemChange,
+      onVideoRecovery: this._onRecovery,
+      onVideoClock: this._onClock,
     });
 
     return (
@@ -182,20 +406,46 @@ Video.propTypes = {
   /* Wrapper component */
   source: PropTypes.oneOfType([
     PropTypes.shape({
-      uri: PropTypes.string
+      uri: PropTypes.string,
+      cache: PropTypes.bool,
+      offset: PropTypes.number,
+      length: PropTypes.number,
+      headers: PropTypes.objectOf(PropTypes.string),
     }),
     // Opaque type returned by require('./video.mp4')
     PropTypes.number
   ]),
+  playlist: PropTypes.arrayOf(PropTypes.oneOfType([
+    PropTypes.shape({
+      uri: PropTypes.string,
+      cache: PropTypes.bool,
+      offset: PropTypes.number,
+      length: PropTypes.number,
+      headers: PropTypes.objectOf(PropTypes.string),
+    }),
+    PropTypes.number
+  ])),
+  playlistLookahead: PropTypes.number,
   resizeMode: PropTypes.string,
   repeat: PropTypes.bool,
   paused: PropTypes.bool,
   muted: PropTypes.bool,
   volume: PropTypes.number,
   rate: PropTypes.number,
+  scrubbing: PropTypes.bool,
   playInBackground: PropTypes.bool,
   playWhenInactive: PropTypes.bool,
   controls: PropTypes.bool,
+  progressUpdateInterval: PropTypes.number,
+  retainOnDetach: PropTypes.bool,
+  retainSurface: PropTypes.bool,
+  statsUpdateInterval: PropTypes.number,
+  recoveryPolicy: PropTypes.shape({
+    maxRetries: PropTypes.number,
+    retryDelay: PropTypes.number,
+    maxRetryDelay: PropTypes.number,
+    stallTimeout: PropTypes.number,
+  }),
   currentTime: PropTypes.number,
   onLoadStart: PropTypes.func,
   onLoad: PropTypes.func,
@@ -211,6 +461,10 @@ Video.propTypes = {
   onPlaybackStalled: PropTypes.func,
   onPlaybackResume: PropTypes.func,
   onPlaybackRateChange: PropTypes.func,
+  onPlaybackStats: PropTypes.func,
+  onPlaylistItemChange: PropTypes.func,
+  onRecovery: PropTypes.func,
+  onClock: PropTypes.func,
 
   /* Required by react-native */
   scaleX: PropTypes.number,
@@ -0,0 +1,51 @@
+package com.brentvatne.react;
+
+/**
+ * Estimates network throughput from completed transfers, as a moving average in which larger
+ * transfers count for more. Shared by all players, so a new source starts from the throughput
+ * measured for the previous one.
+ */
+public class BandwidthMeter {
+
+    public static final long UNKNOWN = -1;
+
+    // Smaller transfers mostly measure latency rather than throughput.
+    private static final long MIN_SAMPLE_BYTES = 32 * 1024;
+    // A transfer of this size replaces half of the previous estimate.
+    private static final double HALF_WEIGHT_BYTES = 2 * 1024 * 1024;
+
+    private static BandwidthMeter sInstance;
+
+    private long mBitrateEstimate = UNKNOWN;
+
+    public static synchronized BandwidthMeter getInstance() {
+        if (sInstance == null) {
+            sInstance = new BandwidthMeter();
+        }
+        return sInstance;
+    }
+
+    public synchronized void addSample(final long bytes, final long elapsedMs) {
+        if (bytes < MIN_SAMPLE_BYTES) {
+            return;
+        }
+        long bitrate = bytes * 8000 / Math.max(1, elapsedMs);
+        if (mBitrateEstimate == UNKNOWN) {
+            mBitrateEstimate = bitrate;
+        } else {
+            double weight = 1 - Math.pow(0.5, bytes / HALF_WEIGHT_BYTES);
+            mBitrateEstimate = Math.round(mBitrateEstimate * (1 - weight) + bitrate * weight);
+        }
+    }
+
+    /**
+     * Returns the estimated throughput in bits per second, or {@link #UNKNOWN}.
+     */
+    public synchronized long getBitrateEstimate() {
+        return mBitrateEstimate;
+    }
+
+    public synchronized void reset() {
+        mBitrateEstimate = UNKNOWN;
+    }
+}
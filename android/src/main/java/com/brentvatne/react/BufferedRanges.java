@@ -0,0 +1,96 @@
+package com.brentvatne.react;
+
+import java.util.Arrays;
+
+/**
+ * Time ranges of a view's current source that are buffered, in seconds, stored as consecutive start
+ * and end values. For sources played through the {@link VideoCacheProxy} these are the ranges whose
+ * bytes are actually on disk; otherwise they fall back to MediaPlayer's buffered percentage.
+ *
+ * Recomputed in place on every progress tick, the ranges are only reallocated when they change.
+ */
+public class BufferedRanges {
+
+    private static final int MAX_RANGES = 32;
+
+    private final long[] mByteRanges = new long[MAX_RANGES * 2];
+    private final double[] mScratch = new double[MAX_RANGES * 2];
+    private double[] mRanges = new double[0];
+    private boolean mChanged = false;
+
+    private VideoSource mCacheKeySource = null;
+    private String mCacheKey = null;
+
+    public void update(final VideoSource source, final int durationMs, final int bufferedPercent) {
+        double duration = durationMs / 1000.0;
+        int count = 0;
+
+        VideoCache cache = source.isCached() ? VideoCacheProxy.getRunningCache() : null;
+        VideoCache.Metadata metadata = null;
+        int byteCount = -1;
+        if (cache != null) {
+            if (source != mCacheKeySource) {
+                mCacheKeySource = source;
+                mCacheKey = VideoCache.keyFor(source.getUri());
+            }
+            byteCount = cache.getCachedRanges(mCacheKey, mByteRanges);
+            metadata = cache.getMetadata(mCacheKey);
+        }
+
+        if (byteCount >= 0 && metadata != null && metadata.getLength() > 0) {
+            for (int i = 0; i < byteCount; i++) {
+                mScratch[i] = duration * mByteRanges[i] / metadata.getLength();
+            }
+            count = byteCount;
+        } else if (bufferedPercent > 0) {
+            mScratch[0] = 0;
+            mScratch[1] = duration * bufferedPercent / 100.0;
+            count = 2;
+        }
+
+        if (!rangesEqual(count)) {
+            mRanges = Arrays.copyOf(mScratch, count);
+            mChanged = true;
+        }
+    }
+
+    /**
+     * Returns the ranges if they changed since the last call, or null otherwise.
+     */
+    public double[] takeChanged() {
+        if (!mChanged) {
+            return null;
+        }
+        mChanged = false;
+        return mRanges;
+    }
+
+    /**
+     * Returns the end of the buffered range that contains position, or position if it isn't buffered.
+     */
+    public double getBufferedEnd(final double position) {
+        for (int i = 0; i + 1 < mRanges.length; i += 2) {
+            if (mRanges[i] <= position && position <= mRanges[i + 1]) {
+                return mRanges[i + 1];
+            }
+        }
+        return position;
+    }
+
+    public void reset() {
+        mRanges = new double[0];
+        mChanged = true;
+    }
+
+    private boolean rangesEqual(final int count) {
+        if (count != mRanges.length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (mScratch[i] != mRanges[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package com.brentvatne.react;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounds how many {@link ReactVideoView}s hold a player at once, since every started player keeps its
+ * own codec instances and devices only have a few. Views ask for a slot before loading a source;
+ * when none is free they wait, and views that matter more take the slot of views that matter less.
+ * A view that loses its slot releases its player and, once it gets a slot again, loads its source
+ * again and resumes from where it was.
+ *
+ * Views are ranked by whether they are on screen, whether they are playing, whether they were
+ * interacted with recently, and then by their visible area.
+ *
+ * Players prepared ahead of time by the {@link VideoPreloader}, for preloads and upcoming playlist
+ * items, are only counted here once a view adopts them; until then the preloader bounds them itself.
+ *
+ * Must only be used from the UI thread.
+ */
+public class DecoderGovernor {
+
+    public static final int DEFAULT_MAX_DECODERS = 4;
+    public static final int DEFAULT_MAX_DECODERS_LOW_RAM = 2;
+
+    private static final long REBALANCE_DELAY_MS = 100;
+    private static final long RECENT_INTERACTION_MS = 5000;
+
+    private static DecoderGovernor sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashSet<ReactVideoView> mActive = new LinkedHashSet<ReactVideoView>();
+    private final LinkedHashSet<ReactVideoView> mWaiting = new LinkedHashSet<ReactVideoView>();
+    private final Rect mVisibleRect = new Rect();
+    private int mMaxDecoders = -1;
+    private boolean mRebalanceScheduled = false;
+
+    private final Runnable mRebalanceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mRebalanceScheduled = false;
+            rebalance();
+        }
+    };
+
+    public static DecoderGovernor getInstance() {
+        if (sInstance == null) {
+            sInstance = new DecoderGovernor();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Asks for a slot for a view that is about to load a source. Returns true if the view may go
+     * ahead; otherwise the view waits and {@link ReactVideoView#restoreDecoder()} is called once it
+     * is granted a slot.
+     */
+    public boolean acquire(final ReactVideoView view) {
+        initMaxDecoders(view.getContext());
+        if (mActive.contains(view)) {
+            return true;
+        }
+        if (mActive.size() < mMaxDecoders) {
+            mWaiting.remove(view);
+            mActive.add(view);
+            return true;
+        }
+        mWaiting.add(view);
+        scheduleRebalance();
+        return false;
+    }
+
+    /**
+     * Called when a view released its player. Its slot is handed to the most important waiting view.
+     */
+    public void release(final ReactVideoView view) {
+        if (mActive.remove(view)) {
+            scheduleRebalance();
+        }
+    }
+
+    /**
+     * Stops tracking a view, e.g. when it is detached or dropped.
+     */
+    public void unregister(final ReactVideoView view) {
+        mWaiting.remove(view);
+        release(view);
+    }
+
+    /**
+     * Re-evaluates which views deserve a slot soon, e.g. after one scrolled or changed visibility.
+     */
+    public void scheduleRebalance() {
+        if (!mRebalanceScheduled && !isBalanced()) {
+            mRebalanceScheduled = true;
+            mHandler.postDelayed(mRebalanceRunnable, REBALANCE_DELAY_MS);
+        }
+    }
+
+    public void setMaxDecoders(final int maxDecoders) {
+        mMaxDecoders = Math.max(1, maxDecoders);
+        rebalance();
+    }
+
+    private void initMaxDecoders(final Context context) {
+        if (mMaxDecoders != -1) {
+            return;
+        }
+        mMaxDecoders = DEFAULT_MAX_DECODERS;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (activityManager != null && activityManager.isLowRamDevice()) {
+                mMaxDecoders = DEFAULT_MAX_DECODERS_LOW_RAM;
+            }
+        }
+    }
+
+    private boolean isBalanced() {
+        return mMaxDecoders == -1 || (mWaiting.isEmpty() && mActive.size() <= mMaxDecoders);
+    }
+
+    private void rebalance() {
+        if (isBalanced()) {
+            return;
+        }
+
+        List<ReactVideoView> views = new ArrayList<ReactVideoView>(mActive.size() + mWaiting.size());
+        views.addAll(mActive);
+        views.addAll(mWaiting);
+        final Map<ReactVideoView, Long> priorities = new HashMap<ReactVideoView, Long>();
+        long now = SystemClock.uptimeMillis();
+        for (ReactVideoView view : views) {
+            priorities.put(view, getPriority(view, now));
+        }
+        // Highest priority first; the sort is stable, so active views win ties and don't thrash.
+        Collections.sort(views, new Comparator<ReactVideoView>() {
+            @Override
+            public int compare(ReactVideoView lhs, ReactVideoView rhs) {
+                return priorities.get(rhs).compareTo(priorities.get(lhs));
+            }
+        });
+
+        List<ReactVideoView> granted = views.subList(0, Math.min(mMaxDecoders, views.size()));
+        List<ReactVideoView> demoted = new ArrayList<ReactVideoView>();
+        for (ReactVideoView view : mActive) {
+            if (!granted.contains(view)) {
+                demoted.add(view);
+            }
+        }
+        List<ReactVideoView> restored = new ArrayList<ReactVideoView>();
+        for (ReactVideoView view : granted) {
+            if (!mActive.contains(view)) {
+                restored.add(view);
+            }
+        }
+
+        for (ReactVideoView view : demoted) {
+            mActive.remove(view);
+            mWaiting.add(view);
+            view.demoteDecoder();
+        }
+        for (ReactVideoView view : restored) {
+            mWaiting.remove(view);
+            mActive.add(view);
+            view.restoreDecoder();
+        }
+    }
+
+    /**
+     * Packs the ranking criteria into a single number: on screen, then playing, then recently
+     * interacted with, then visible area in pixels.
+     */
+    private long getPriority(final ReactVideoView view, final long now) {
+        long visibleArea = 0;
+        if (view.isShown() && view.getGlobalVisibleRect(mVisibleRect)) {
+            visibleArea = Math.min((long) mVisibleRect.width() * mVisibleRect.height(), (1L << 40) - 1);
+        }
+        long priority = 0;
+        if (visibleArea > 0) {
+            priority |= 1L << 44;
+        }
+        if (view.isPlaybackRequested()) {
+            priority |= 1L << 43;
+        }
+        if (now - view.getLastInteractionTime() < RECENT_INTERACTION_MS) {
+            priority |= 1L << 42;
+        }
+        return priority | visibleArea;
+    }
+}
@@ -0,0 +1,401 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays HLS sources ({@code type: 'm3u8'}) with its own rendition switching. MediaPlayer is given a
+ * single media playlist served by the {@link VideoCacheProxy}, whose segments the proxy fetches from
+ * the rendition that fits the throughput measured by {@link BandwidthMeter} at that moment.
+ *
+ * Playback starts on the rendition that fits the last measured throughput, or on the lowest one, and
+ * only the master playlist and that rendition's playlist are fetched before the player is prepared.
+ * Switching renditions between segments requires them to be aligned and share their codecs, as they
+ * are for regular adaptive streams. Since the playlist is generated before any switch happens, switches
+ * are only made at segments at least {@link #SWITCH_INTERVAL_SECONDS} apart, which the playlist marks
+ * with a discontinuity so MediaPlayer picks up the new rendition's format there. Live streams,
+ * encrypted or byte-range segments, fMP4 and alternate audio renditions are played directly by
+ * MediaPlayer instead.
+ */
+public class HlsAdaptiveBackend implements VideoBackend {
+
+    public static final String TYPE_HLS = "m3u8";
+
+    // Only switch to a rendition whose bitrate leaves this much headroom in the measured throughput.
+    private static final float BANDWIDTH_FRACTION = 0.75f;
+    // Each discontinuity flushes the decoders, so they are only placed this far apart.
+    private static final double SWITCH_INTERVAL_SECONDS = 10;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String PARAM_SEGMENT = "segment";
+
+    @Override
+    public boolean canPlay(final VideoSource source) {
+        return source.isNetwork() && TYPE_HLS.equals(source.getType());
+    }
+
+    @Override
+    public ResolvedVideoSource resolve(final Context context, final VideoSource source) throws IOException {
+        Map<String, String> headers = source.getRequestHeaders();
+        Session session;
+        try {
+            session = Session.create(source.getUri(), headers);
+        } catch (IOException e) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Playing " + source.getUri() + " without adaptation: "
+                    + e.getMessage());
+            return source.resolve(context);
+        }
+        return ResolvedVideoSource.forSession(
+                VideoCacheProxy.getInstance(context).addSession(session, "playlist.m3u8"), headers);
+    }
+
+    /**
+     * One rendition of a master playlist. Its media playlist is loaded the first time it is selected.
+     * The other fields are only read after seeing mSegmentUrls set, which is written last.
+     */
+    private static class Variant {
+
+        private final long mBandwidth;
+        private final String mUrl;
+        private volatile List<String> mSegmentUrls;
+        private List<String> mSegmentDurations;
+        private int mTargetDuration;
+        private volatile boolean mUnusable = false;
+
+        private Variant(final long bandwidth, final String url) {
+            mBandwidth = bandwidth;
+            mUrl = url;
+        }
+
+        private synchronized void load(final Map<String, String> headers) throws IOException {
+            if (mSegmentUrls != null) {
+                return;
+            }
+            List<String> segmentUrls = new ArrayList<String>();
+            List<String> segmentDurations = new ArrayList<String>();
+            String[] baseUrl = new String[1];
+            String playlist = fetchText(mUrl, headers, baseUrl);
+
+            int targetDuration = 0;
+            boolean ended = false;
+            String duration = null;
+            for (String line : playlist.split("\n")) {
+                line = line.trim();
+                if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                    try {
+                        targetDuration = Integer.parseInt(line.substring("#EXT-X-TARGETDURATION:".length()).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IOException("invalid target duration");
+                    }
+                } else if (line.startsWith("#EXTINF:")) {
+                    int separator = line.indexOf(',');
+                    duration = line.substring("#EXTINF:".length(), separator < 0 ? line.length() : separator).trim();
+                } else if (line.startsWith("#EXT-X-ENDLIST")) {
+                    ended = true;
+                } else if (line.startsWith("#EXT-X-KEY:") && !line.contains("METHOD=NONE")) {
+                    throw new IOException("encrypted segments");
+                } else if (line.startsWith("#EXT-X-BYTERANGE") || line.startsWith("#EXT-X-MAP")) {
+                    throw new IOException("unsupported segment format");
+                } else if (line.length() > 0 && !line.startsWith("#")) {
+                    if (duration == null) {
+                        throw new IOException("segment without duration");
+                    }
+                    segmentUrls.add(new URL(new URL(baseUrl[0]), line).toString());
+                    segmentDurations.add(duration);
+                    duration = null;
+                }
+            }
+            if (!ended) {
+                throw new IOException("live playlist");
+            }
+            if (segmentUrls.isEmpty()) {
+                throw new IOException("empty playlist");
+            }
+            mTargetDuration = targetDuration;
+            mSegmentDurations = segmentDurations;
+            mSegmentUrls = segmentUrls;
+        }
+    }
+
+    /**
+     * Serves the generated media playlist and its segments for one source.
+     */
+    /* package */ static class Session implements VideoCacheProxy.Session {
+
+        private final List<Variant> mVariants;
+        private final Variant mPlaylistVariant;
+        // Segments before which the rendition may change, marked as discontinuities in the playlist.
+        private final boolean[] mSwitchPoints;
+        private int mCurrentVariant;
+
+        private Session(final List<Variant> variants, final int initialVariant) {
+            mVariants = variants;
+            mCurrentVariant = initialVariant;
+            mPlaylistVariant = variants.get(initialVariant);
+
+            List<String> durations = mPlaylistVariant.mSegmentDurations;
+            mSwitchPoints = new boolean[durations.size()];
+            double sinceSwitchPoint = 0;
+            for (int i = 0; i < durations.size(); i++) {
+                if (i > 0 && sinceSwitchPoint >= SWITCH_INTERVAL_SECONDS) {
+                    mSwitchPoints[i] = true;
+                    sinceSwitchPoint = 0;
+                }
+                try {
+                    sinceSwitchPoint += Double.parseDouble(durations.get(i));
+                } catch (NumberFormatException e) {
+                    sinceSwitchPoint += mPlaylistVariant.mTargetDuration;
+                }
+            }
+        }
+
+        /**
+         * Fetches the master playlist and the playlist of the initial rendition.
+         */
+        /* package */ static Session create(final String url, final Map<String, String> headers) throws IOException {
+            String[] baseUrl = new String[1];
+            String playlist = fetchText(url, headers, baseUrl);
+
+            List<Variant> variants = new ArrayList<Variant>();
+            long bandwidth = -1;
+            for (String line : playlist.split("\n")) {
+                line = line.trim();
+                if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                    bandwidth = parseBandwidth(line);
+                } else if (line.startsWith("#EXT-X-MEDIA:") && line.contains("URI=")) {
+                    throw new IOException("alternate renditions");
+                } else if (line.length() > 0 && !line.startsWith("#") && bandwidth >= 0) {
+                    variants.add(new Variant(bandwidth, new URL(new URL(baseUrl[0]), line).toString()));
+                    bandwidth = -1;
+                }
+            }
+            if (variants.size() < 2) {
+                throw new IOException("no renditions to switch between");
+            }
+            Collections.sort(variants, new Comparator<Variant>() {
+                @Override
+                public int compare(Variant lhs, Variant rhs) {
+                    return lhs.mBandwidth < rhs.mBandwidth ? -1 : (lhs.mBandwidth == rhs.mBandwidth ? 0 : 1);
+                }
+            });
+
+            int initialVariant = selectVariant(variants, BandwidthMeter.getInstance().getBitrateEstimate());
+            variants.get(initialVariant).load(headers);
+            return new Session(variants, initialVariant);
+        }
+
+        @Override
+        public void serve(final Map<String, String> params, final Map<String, String> headers,
+                          final OutputStream out, final boolean isHead) throws IOException {
+            String segment = params.get(PARAM_SEGMENT);
+            if (segment == null) {
+                servePlaylist(params, out, isHead);
+                return;
+            }
+
+            int index;
+            try {
+                index = Integer.parseInt(segment);
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+            if (index < 0 || index >= mPlaylistVariant.mSegmentUrls.size()) {
+                VideoCacheProxy.writeStatus(out, 404, "Not Found");
+                return;
+            }
+            serveSegment(nextVariant(index, headers), index, headers, out, isHead);
+        }
+
+        /**
+         * Writes the segment list of the initial rendition, pointing every segment back at this session.
+         */
+        private void servePlaylist(final Map<String, String> params, final OutputStream out, final boolean isHead)
+                throws IOException {
+            // Segment urls carry the session's token, which the proxy checks for them too.
+            String query = "?" + VideoCacheProxy.PARAM_SESSION + "=" + params.get(VideoCacheProxy.PARAM_SESSION)
+                    + "&" + VideoCacheProxy.PARAM_TOKEN + "=" + params.get(VideoCacheProxy.PARAM_TOKEN)
+                    + "&" + PARAM_SEGMENT + "=";
+            StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+            playlist.append("#EXT-X-TARGETDURATION:").append(mPlaylistVariant.mTargetDuration).append('\n');
+            playlist.append("#EXT-X-MEDIA-SEQUENCE:0\n#EXT-X-PLAYLIST-TYPE:VOD\n");
+            for (int i = 0; i < mPlaylistVariant.mSegmentUrls.size(); i++) {
+                if (mSwitchPoints[i]) {
+                    playlist.append("#EXT-X-DISCONTINUITY\n");
+                }
+                playlist.append("#EXTINF:").append(mPlaylistVariant.mSegmentDurations.get(i)).append(",\n");
+                playlist.append("segment").append(i).append(".ts").append(query).append(i).append('\n');
+            }
+            playlist.append("#EXT-X-ENDLIST\n");
+
+            byte[] body = playlist.toString().getBytes("UTF-8");
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/vnd.apple.mpegurl\r\nContent-Length: "
+                    + body.length + "\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+            if (!isHead) {
+                out.write(body);
+            }
+            out.flush();
+        }
+
+        /**
+         * Streams a segment from the origin, measuring the throughput of the transfer.
+         */
+        private void serveSegment(final Variant variant, final int index, final Map<String, String> headers,
+                                  final OutputStream out, final boolean isHead) throws IOException {
+            long startTime = SystemClock.elapsedRealtime();
+            HttpURLConnection connection = open(variant.mSegmentUrls.get(index), headers);
+            boolean reusable = false;
+            try {
+                StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\n");
+                if (connection.getContentType() != null) {
+                    response.append("Content-Type: ").append(connection.getContentType()).append("\r\n");
+                }
+                String contentLength = connection.getHeaderField("Content-Length");
+                if (contentLength != null) {
+                    response.append("Content-Length: ").append(contentLength.trim()).append("\r\n");
+                }
+                response.append("Connection: close\r\n\r\n");
+                out.write(response.toString().getBytes("ISO-8859-1"));
+                if (isHead) {
+                    out.flush();
+                    return;
+                }
+
+                InputStream in = connection.getInputStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long bytes = 0;
+                int read;
+                try {
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                        bytes += read;
+                    }
+                } finally {
+                    in.close();
+                }
+                reusable = true;
+                out.flush();
+                BandwidthMeter.getInstance().addSample(bytes, SystemClock.elapsedRealtime() - startTime);
+            } finally {
+                VideoHttp.close(connection, reusable);
+            }
+        }
+
+        /**
+         * Picks the rendition for a segment. At switch points this goes down to the one that fits right
+         * away, but up by a single step at a time so a short burst of throughput doesn't cause a large
+         * jump. Other segments stay on the current rendition. A rendition only becomes current once its
+         * playlist is loaded and aligned, so concurrent segment requests never see it half loaded.
+         */
+        private Variant nextVariant(final int index, final Map<String, String> headers) {
+            int target;
+            synchronized (this) {
+                if (!mSwitchPoints[index]) {
+                    return mVariants.get(mCurrentVariant);
+                }
+                target = selectVariant(mVariants, BandwidthMeter.getInstance().getBitrateEstimate());
+                if (target > mCurrentVariant) {
+                    target = mCurrentVariant + 1;
+                }
+                if (target == mCurrentVariant || mVariants.get(target).mUnusable) {
+                    return mVariants.get(mCurrentVariant);
+                }
+            }
+
+            Variant variant = mVariants.get(target);
+            try {
+                variant.load(headers);
+                if (variant.mSegmentUrls.size() == mPlaylistVariant.mSegmentUrls.size()) {
+                    synchronized (this) {
+                        mCurrentVariant = target;
+                    }
+                    return variant;
+                }
+                Log.w(ReactVideoViewManager.REACT_CLASS, "Rendition " + variant.mUrl + " is not aligned");
+            } catch (IOException e) {
+                Log.w(ReactVideoViewManager.REACT_CLASS, "Could not load rendition " + variant.mUrl, e);
+            }
+            variant.mUnusable = true;
+            synchronized (this) {
+                return mVariants.get(mCurrentVariant);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the best rendition for the given throughput, or the lowest if it is unknown.
+     */
+    private static int selectVariant(final List<Variant> variants, final long bitrateEstimate) {
+        int selected = 0;
+        if (bitrateEstimate == BandwidthMeter.UNKNOWN) {
+            return selected;
+        }
+        for (int i = 0; i < variants.size(); i++) {
+            if (variants.get(i).mBandwidth <= bitrateEstimate * BANDWIDTH_FRACTION) {
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    private static long parseBandwidth(final String line) throws IOException {
+        for (String attribute : line.substring(line.indexOf(':') + 1).split(",")) {
+            if (attribute.startsWith("BANDWIDTH=")) {
+                try {
+                    return Long.parseLong(attribute.substring("BANDWIDTH=".length()).trim());
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        throw new IOException("rendition without bandwidth");
+    }
+
+    private static HttpURLConnection open(final String url, final Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = VideoHttp.open(url, headers, 0, -1);
+        int statusCode = connection.getResponseCode();
+        if (statusCode != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("HTTP " + statusCode + " for " + url);
+        }
+        return connection;
+    }
+
+    /**
+     * Fetches a playlist and stores the url it was served from, after redirects, in baseUrl[0].
+     */
+    private static String fetchText(final String url, final Map<String, String> headers, final String[] baseUrl)
+            throws IOException {
+        HttpURLConnection connection = open(url, headers);
+        boolean reusable = false;
+        try {
+            InputStream in = connection.getInputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            try {
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            baseUrl[0] = connection.getURL().toString();
+            reusable = true;
+            return body.toString("UTF-8");
+        } finally {
+            VideoHttp.close(connection, reusable);
+        }
+    }
+}
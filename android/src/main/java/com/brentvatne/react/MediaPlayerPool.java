@@ -0,0 +1,157 @@
+package com.brentvatne.react;
+
+import android.media.MediaPlayer;
+
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Process-wide pool of {@link MediaPlayer}s shared by every {@link ReactVideoView}.
+ *
+ * Views lease a reset player when they need one and hand it back when they are detached or dropped.
+ * Idle players are kept most-recently-returned first so the oldest one is evicted when the number of
+ * live players would exceed {@link #getMaxPlayers()}.
+ *
+ * The pool only bounds idle players: a lease is never refused, since the views and preloaded players
+ * asking for one have already been allowed to hold a decoder. How many players are leased at a time
+ * is bounded by {@link DecoderGovernor} and {@link VideoPreloader#MAX_PREPARED_AHEAD} instead, and
+ * while more than {@link #getMaxPlayers()} are leased, returned players are released right away.
+ */
+public class MediaPlayerPool {
+
+    public static final int DEFAULT_MAX_PLAYERS = 4;
+
+    public static final String STAT_MAX_PLAYERS = "maxPlayers";
+    public static final String STAT_LEASED = "leased";
+    public static final String STAT_IDLE = "idle";
+    public static final String STAT_ACQUIRES = "acquires";
+    public static final String STAT_HITS = "hits";
+    public static final String STAT_MISSES = "misses";
+    public static final String STAT_EVICTIONS = "evictions";
+    public static final String STAT_HIT_RATE = "hitRate";
+
+    private static MediaPlayerPool sInstance;
+
+    private final LinkedList<MediaPlayer> mIdlePlayers = new LinkedList<MediaPlayer>();
+    private int mMaxPlayers = DEFAULT_MAX_PLAYERS;
+    private int mLeasedCount = 0;
+
+    private long mAcquireCount = 0;
+    private long mHitCount = 0;
+    private long mMissCount = 0;
+    private long mEvictionCount = 0;
+
+    public static synchronized MediaPlayerPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new MediaPlayerPool();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Leases a player in the idle state, creating one if none is idle even when that exceeds
+     * {@link #getMaxPlayers()}. Callers own the player until they pass it to {@link #release}.
+     */
+    public synchronized MediaPlayer acquire() {
+        mAcquireCount++;
+        mLeasedCount++;
+
+        MediaPlayer player = mIdlePlayers.poll();
+        if (player != null) {
+            mHitCount++;
+            return player;
+        }
+
+        mMissCount++;
+        trimToSize(mMaxPlayers - mLeasedCount);
+        return new MediaPlayer();
+    }
+
+    /**
+     * Returns a leased player. The player is reset and detached from its listeners and surface, then
+     * either kept for the next lease or released if the pool is already at capacity.
+     */
+    public synchronized void release(MediaPlayer player) {
+        if (player == null) {
+            return;
+        }
+        mLeasedCount = Math.max(0, mLeasedCount - 1);
+
+        player.setOnPreparedListener(null);
+        player.setOnErrorListener(null);
+        player.setOnBufferingUpdateListener(null);
+        player.setOnCompletionListener(null);
+        player.setOnInfoListener(null);
+        player.setOnVideoSizeChangedListener(null);
+        player.setOnSeekCompleteListener(null);
+
+        try {
+            player.reset();
+            player.setSurface(null);
+        } catch (IllegalStateException e) {
+            mEvictionCount++;
+            player.release();
+            return;
+        }
+
+        if (mLeasedCount + mIdlePlayers.size() >= mMaxPlayers) {
+            mEvictionCount++;
+            player.release();
+        } else {
+            mIdlePlayers.addFirst(player);
+        }
+    }
+
+    /**
+     * Releases a leased player instead of returning it to the pool, e.g. after it failed.
+     */
+    public synchronized void discard(MediaPlayer player) {
+        if (player == null) {
+            return;
+        }
+        mLeasedCount = Math.max(0, mLeasedCount - 1);
+        mEvictionCount++;
+        player.release();
+    }
+
+    public synchronized int getMaxPlayers() {
+        return mMaxPlayers;
+    }
+
+    public synchronized void setMaxPlayers(final int maxPlayers) {
+        mMaxPlayers = Math.max(1, maxPlayers);
+        trimToSize(mMaxPlayers - mLeasedCount);
+    }
+
+    /**
+     * Releases every idle player. Leased players are unaffected.
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(final int maxIdle) {
+        Iterator<MediaPlayer> iterator = mIdlePlayers.descendingIterator();
+        while (mIdlePlayers.size() > Math.max(0, maxIdle) && iterator.hasNext()) {
+            MediaPlayer player = iterator.next();
+            iterator.remove();
+            player.release();
+            mEvictionCount++;
+        }
+    }
+
+    public synchronized WritableMap getStats() {
+        WritableMap stats = VideoArguments.createMap();
+        stats.putInt(STAT_MAX_PLAYERS, mMaxPlayers);
+        stats.putInt(STAT_LEASED, mLeasedCount);
+        stats.putInt(STAT_IDLE, mIdlePlayers.size());
+        stats.putDouble(STAT_ACQUIRES, mAcquireCount);
+        stats.putDouble(STAT_HITS, mHitCount);
+        stats.putDouble(STAT_MISSES, mMissCount);
+        stats.putDouble(STAT_EVICTIONS, mEvictionCount);
+        stats.putDouble(STAT_HIT_RATE, mAcquireCount == 0 ? 0.0 : (double) mHitCount / mAcquireCount);
+        return stats;
+    }
+}
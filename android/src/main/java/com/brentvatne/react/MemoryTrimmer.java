@@ -0,0 +1,106 @@
+package com.brentvatne.react;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Frees players and caches when the system runs low on memory. Depending on the trim level it drops,
+ * from least to most disruptive: idle pooled players, cached thumbnails, preloaded and retained
+ * players, retained surfaces and the players prepared for upcoming playlist items, and finally the
+ * players of views that are not playing. Those views keep their source, position and paused state
+ * and load again once they are shown while the app is in the foreground. Leaving the app only
+ * releases the players of paused views; caches are kept until memory actually runs low.
+ *
+ * Registered once per process from {@link ReactVideoPackage}. Callbacks arrive on the UI thread.
+ */
+public class MemoryTrimmer implements ComponentCallbacks2 {
+
+    private static MemoryTrimmer sInstance;
+
+    private final Set<ReactVideoView> mViews =
+            Collections.newSetFromMap(new WeakHashMap<ReactVideoView, Boolean>());
+
+    public static synchronized MemoryTrimmer getInstance() {
+        if (sInstance == null) {
+            sInstance = new MemoryTrimmer();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Starts receiving memory callbacks for the application of the given context. Safe to call more
+     * than once.
+     */
+    public static synchronized void register(final Context context) {
+        if (sInstance == null) {
+            context.getApplicationContext().registerComponentCallbacks(getInstance());
+        }
+    }
+
+    public void addView(final ReactVideoView view) {
+        mViews.add(view);
+    }
+
+    public void removeView(final ReactVideoView view) {
+        mViews.remove(view);
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        // From UI_HIDDEN on the levels are a separate scale for apps in the background, and
+        // UI_HIDDEN alone only means the app was left, not that memory is short.
+        boolean background = level >= TRIM_MEMORY_UI_HIDDEN;
+        int pressure = background ? toRunningLevel(level) : level;
+        if (pressure >= TRIM_MEMORY_RUNNING_MODERATE) {
+            MediaPlayerPool.getInstance().clear();
+        }
+        if (pressure >= TRIM_MEMORY_RUNNING_LOW) {
+            VideoThumbnails.clearMemoryCache();
+            VideoPreloader.getInstance().clear();
+            RetainedPlayers.getInstance().clear();
+            RetainedSurfaces.getInstance().clear();
+            for (ReactVideoView view : new ArrayList<ReactVideoView>(mViews)) {
+                view.releaseUpcomingPlayers();
+            }
+        }
+        // In the background every view is paused unless it plays in background, and its decoders are
+        // better left to the app in the foreground. In the foreground only views that can't be seen
+        // give up their player, and only once memory is critical.
+        if (background || pressure >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            for (ReactVideoView view : new ArrayList<ReactVideoView>(mViews)) {
+                if (background || !view.isShown()) {
+                    view.releasePlayerIfPaused();
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps a background trim level onto the running level of the same urgency, or 0 for UI_HIDDEN.
+     */
+    /* package */ static int toRunningLevel(final int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            return TRIM_MEMORY_RUNNING_CRITICAL;
+        } else if (level >= TRIM_MEMORY_MODERATE) {
+            return TRIM_MEMORY_RUNNING_LOW;
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            return TRIM_MEMORY_RUNNING_MODERATE;
+        }
+        return 0;
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(final Configuration newConfig) {
+    }
+}
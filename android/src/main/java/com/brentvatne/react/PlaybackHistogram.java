@@ -0,0 +1,69 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Fixed-bucket histogram of durations in milliseconds.
+ */
+public class PlaybackHistogram {
+
+    public static final String PROP_COUNT = "count";
+    public static final String PROP_SUM = "sum";
+    public static final String PROP_MAX = "max";
+    public static final String PROP_BOUNDS = "bounds";
+    public static final String PROP_BUCKETS = "buckets";
+
+    // Upper bounds of every bucket but the last, which counts everything above the last bound.
+    private static final long[] BOUNDS = {100, 250, 500, 1000, 2000, 5000, 10000};
+
+    private final long[] mBuckets = new long[BOUNDS.length + 1];
+    private long mCount = 0;
+    private long mSum = 0;
+    private long mMax = 0;
+
+    public void record(final long durationMs) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && durationMs > BOUNDS[bucket]) {
+            bucket++;
+        }
+        mBuckets[bucket]++;
+        mCount++;
+        mSum += durationMs;
+        mMax = Math.max(mMax, durationMs);
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Returns the number of durations recorded in the given bucket, counting from 0.
+     */
+    /* package */ long getBucketCount(final int bucket) {
+        return mBuckets[bucket];
+    }
+
+    public WritableMap toWritableMap() {
+        WritableArray bounds = VideoArguments.createArray();
+        for (long bound : BOUNDS) {
+            bounds.pushDouble(bound);
+        }
+        WritableArray buckets = VideoArguments.createArray();
+        for (long bucket : mBuckets) {
+            buckets.pushDouble(bucket);
+        }
+
+        WritableMap histogram = VideoArguments.createMap();
+        histogram.putDouble(PROP_COUNT, mCount);
+        histogram.putDouble(PROP_SUM, mSum);
+        histogram.putDouble(PROP_MAX, mMax);
+        histogram.putArray(PROP_BOUNDS, bounds);
+        histogram.putArray(PROP_BUCKETS, buckets);
+        return histogram;
+    }
+}
@@ -0,0 +1,192 @@
+package com.brentvatne.react;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Quality of experience measurements for one playback session of a {@link ReactVideoView}, from the
+ * moment its source starts loading. Every measurement is also recorded in the process-wide
+ * histograms returned by {@link #getAggregate()}, where sessions are counted once they are prepared.
+ */
+public class PlaybackStats {
+
+    public static final String PROP_STARTUP_TIME = "startupTime";
+    public static final String PROP_TIME_TO_FIRST_FRAME = "timeToFirstFrame";
+    public static final String PROP_STALL_COUNT = "stallCount";
+    public static final String PROP_STALL_DURATION = "stallDuration";
+    public static final String PROP_PLAY_DURATION = "playDuration";
+    public static final String PROP_REBUFFER_RATIO = "rebufferRatio";
+    public static final String PROP_SEEK_COUNT = "seekCount";
+    public static final String PROP_SEEK_LATENCY = "seekLatency";
+    public static final String PROP_ERROR_COUNT = "errorCount";
+    public static final String PROP_SESSIONS = "sessions";
+    public static final String PROP_TOTAL_PLAY_DURATION = "totalPlayDuration";
+    public static final String PROP_TOTAL_STALL_DURATION = "totalStallDuration";
+
+    private static final Aggregate sAggregate = new Aggregate();
+
+    private final long mLoadStartTime = SystemClock.elapsedRealtime();
+    private long mStartupTime = -1;
+    private long mTimeToFirstFrame = -1;
+    private int mStallCount = 0;
+    private long mStallDuration = 0;
+    private long mStallStartTime = -1;
+    private long mPlayDuration = 0;
+    private long mPlayStartTime = -1;
+    private int mSeekCount = 0;
+    private long mSeekLatency = 0;
+    private long mSeekStartTime = -1;
+    private int mErrorCount = 0;
+
+    public static Aggregate getAggregate() {
+        return sAggregate;
+    }
+
+    public void onPrepared() {
+        if (mStartupTime == -1) {
+            mStartupTime = SystemClock.elapsedRealtime() - mLoadStartTime;
+            synchronized (sAggregate) {
+                sAggregate.mSessions++;
+                sAggregate.mStartupTime.record(mStartupTime);
+            }
+        }
+    }
+
+    public void onFirstFrame() {
+        if (mTimeToFirstFrame == -1) {
+            mTimeToFirstFrame = SystemClock.elapsedRealtime() - mLoadStartTime;
+            synchronized (sAggregate) {
+                sAggregate.mTimeToFirstFrame.record(mTimeToFirstFrame);
+            }
+        }
+    }
+
+    public void onStallStart() {
+        if (mStallStartTime == -1) {
+            mStallStartTime = SystemClock.elapsedRealtime();
+            mStallCount++;
+        }
+    }
+
+    public void onStallEnd() {
+        if (mStallStartTime != -1) {
+            long stallDuration = SystemClock.elapsedRealtime() - mStallStartTime;
+            mStallStartTime = -1;
+            mStallDuration += stallDuration;
+            synchronized (sAggregate) {
+                sAggregate.mStallDuration.record(stallDuration);
+                sAggregate.mTotalStallDuration += stallDuration;
+            }
+        }
+    }
+
+    public void onSeekStart() {
+        mSeekStartTime = SystemClock.elapsedRealtime();
+    }
+
+    public void onSeekComplete() {
+        if (mSeekStartTime != -1) {
+            long seekLatency = SystemClock.elapsedRealtime() - mSeekStartTime;
+            mSeekStartTime = -1;
+            mSeekCount++;
+            mSeekLatency += seekLatency;
+            synchronized (sAggregate) {
+                sAggregate.mSeekLatency.record(seekLatency);
+            }
+        }
+    }
+
+    public void onError() {
+        mErrorCount++;
+        onStallEnd();
+        synchronized (sAggregate) {
+            sAggregate.mErrorCount++;
+        }
+    }
+
+    public void setPlaying(final boolean playing) {
+        if (playing && mPlayStartTime == -1) {
+            mPlayStartTime = SystemClock.elapsedRealtime();
+        } else if (!playing && mPlayStartTime != -1) {
+            long playDuration = SystemClock.elapsedRealtime() - mPlayStartTime;
+            mPlayStartTime = -1;
+            mPlayDuration += playDuration;
+            synchronized (sAggregate) {
+                sAggregate.mTotalPlayDuration += playDuration;
+            }
+        }
+    }
+
+    /**
+     * Closes the play and stall intervals still open, so their time reaches the aggregate. Called
+     * before the session is replaced or dropped; calling it again has no effect.
+     */
+    public void finish() {
+        onStallEnd();
+        setPlaying(false);
+        mSeekStartTime = -1;
+    }
+
+    public WritableMap toWritableMap() {
+        long now = SystemClock.elapsedRealtime();
+        long playDuration = mPlayDuration + (mPlayStartTime == -1 ? 0 : now - mPlayStartTime);
+        long stallDuration = mStallDuration + (mStallStartTime == -1 ? 0 : now - mStallStartTime);
+
+        WritableMap stats = VideoArguments.createMap();
+        stats.putDouble(PROP_STARTUP_TIME, mStartupTime);
+        stats.putDouble(PROP_TIME_TO_FIRST_FRAME, mTimeToFirstFrame);
+        stats.putInt(PROP_STALL_COUNT, mStallCount);
+        stats.putDouble(PROP_STALL_DURATION, stallDuration);
+        stats.putDouble(PROP_PLAY_DURATION, playDuration);
+        stats.putDouble(PROP_REBUFFER_RATIO, rebufferRatio(playDuration, stallDuration));
+        stats.putInt(PROP_SEEK_COUNT, mSeekCount);
+        stats.putDouble(PROP_SEEK_LATENCY, mSeekCount == 0 ? 0 : (double) mSeekLatency / mSeekCount);
+        stats.putInt(PROP_ERROR_COUNT, mErrorCount);
+        return stats;
+    }
+
+    private static double rebufferRatio(final long playDuration, final long stallDuration) {
+        return playDuration + stallDuration == 0 ? 0 : (double) stallDuration / (playDuration + stallDuration);
+    }
+
+    /**
+     * Histograms and totals across every session of every view. Synchronize on the instance to read it.
+     */
+    public static class Aggregate {
+
+        private long mSessions = 0;
+        private long mErrorCount = 0;
+        private long mTotalPlayDuration = 0;
+        private long mTotalStallDuration = 0;
+        private PlaybackHistogram mStartupTime = new PlaybackHistogram();
+        private PlaybackHistogram mTimeToFirstFrame = new PlaybackHistogram();
+        private PlaybackHistogram mStallDuration = new PlaybackHistogram();
+        private PlaybackHistogram mSeekLatency = new PlaybackHistogram();
+
+        public synchronized WritableMap toWritableMap() {
+            WritableMap stats = VideoArguments.createMap();
+            stats.putDouble(PROP_SESSIONS, mSessions);
+            stats.putDouble(PROP_ERROR_COUNT, mErrorCount);
+            stats.putDouble(PROP_TOTAL_PLAY_DURATION, mTotalPlayDuration);
+            stats.putDouble(PROP_TOTAL_STALL_DURATION, mTotalStallDuration);
+            stats.putDouble(PROP_REBUFFER_RATIO, rebufferRatio(mTotalPlayDuration, mTotalStallDuration));
+            stats.putMap(PROP_STARTUP_TIME, mStartupTime.toWritableMap());
+            stats.putMap(PROP_TIME_TO_FIRST_FRAME, mTimeToFirstFrame.toWritableMap());
+            stats.putMap(PROP_STALL_DURATION, mStallDuration.toWritableMap());
+            stats.putMap(PROP_SEEK_LATENCY, mSeekLatency.toWritableMap());
+            return stats;
+        }
+
+        public synchronized void reset() {
+            mSessions = 0;
+            mErrorCount = 0;
+            mTotalPlayDuration = 0;
+            mTotalStallDuration = 0;
+            mStartupTime = new PlaybackHistogram();
+            mTimeToFirstFrame = new PlaybackHistogram();
+            mStallDuration = new PlaybackHistogram();
+            mSeekLatency = new PlaybackHistogram();
+        }
+    }
+}
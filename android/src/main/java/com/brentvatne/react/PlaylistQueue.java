@@ -0,0 +1,111 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The items of a view's playlist and the players being prepared for the items after the current one,
+ * so that advancing to the next item doesn't have to wait for it to load.
+ *
+ * Must only be used from the UI thread.
+ */
+public class PlaylistQueue {
+
+    public static final int DEFAULT_LOOKAHEAD = 1;
+
+    private List<VideoSource> mItems = Collections.emptyList();
+    private int mIndex = -1;
+    private int mLookahead = DEFAULT_LOOKAHEAD;
+    // Players for upcoming items, by index.
+    private final Map<Integer, VideoPreloader.PreloadedPlayer> mPrepared =
+            new HashMap<Integer, VideoPreloader.PreloadedPlayer>();
+
+    /**
+     * Replaces the items and starts over at the first one. Returns false if the items didn't change.
+     */
+    public boolean setItems(final List<VideoSource> items) {
+        if (items.equals(mItems)) {
+            return false;
+        }
+        releasePrepared(0, -1);
+        mItems = new ArrayList<VideoSource>(items);
+        mIndex = mItems.isEmpty() ? -1 : 0;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return mItems.isEmpty();
+    }
+
+    public int getIndex() {
+        return mIndex;
+    }
+
+    public VideoSource getCurrent() {
+        return mIndex < 0 ? null : mItems.get(mIndex);
+    }
+
+    public boolean hasNext() {
+        return mIndex >= 0 && mIndex + 1 < mItems.size();
+    }
+
+    /**
+     * Moves to the next item and returns the player prepared for it, or null if there is none. The
+     * caller takes over the returned player, which may still be preparing or may have failed.
+     */
+    public VideoPreloader.PreloadedPlayer advance() {
+        mIndex++;
+        return mPrepared.remove(mIndex);
+    }
+
+    public void setLookahead(final int lookahead) {
+        mLookahead = Math.max(0, lookahead);
+        releasePrepared(mIndex + 1, mIndex + mLookahead);
+    }
+
+    /**
+     * Starts preparing the items within the lookahead of the current one, and releases the players of
+     * any other items.
+     */
+    public void prepareUpcoming(final Context context) {
+        releasePrepared(mIndex + 1, mIndex + mLookahead);
+        for (int i = mIndex + 1; i <= mIndex + mLookahead && i < mItems.size(); i++) {
+            if (!mPrepared.containsKey(i)) {
+                VideoPreloader.PreloadedPlayer prepared = VideoPreloader.getInstance().prepare(context, mItems.get(i));
+                if (prepared == null) {
+                    // Too many players are prepared ahead already; the item loads once it is reached.
+                    break;
+                }
+                mPrepared.put(i, prepared);
+            }
+        }
+    }
+
+    /**
+     * Releases the players of upcoming items, e.g. to free memory. They are prepared again on the next
+     * call to {@link #prepareUpcoming(Context)}.
+     */
+    public void releaseUpcoming() {
+        releasePrepared(0, -1);
+    }
+
+    /**
+     * Releases the prepared players whose index is outside [first, last].
+     */
+    private void releasePrepared(final int first, final int last) {
+        Iterator<Map.Entry<Integer, VideoPreloader.PreloadedPlayer>> iterator = mPrepared.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, VideoPreloader.PreloadedPlayer> entry = iterator.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                entry.getValue().release();
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.brentvatne.react;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drives progress updates for every playing {@link ReactVideoView} from a single main thread Handler.
+ *
+ * Views are only scheduled while they are actually playing, each at its own progressUpdateInterval,
+ * and nothing is posted at all while no view is scheduled. Every view that is due within the same
+ * frame window is sampled into one {@link ProgressBatch} per JS context, which is sent as a single
+ * {@link #EVENT_PROGRESS_BATCH} device event no matter how many players are playing.
+ */
+public class ProgressTicker implements Runnable {
+
+    public static final String EVENT_PROGRESS_BATCH = "onVideoProgressBatch";
+
+    public static final String EVENT_PROP_TARGET = "target";
+    public static final String EVENT_PROP_BUFFERED_RANGES = "bufferedRanges";
+
+    // Views due within this many ms of a tick are sampled in that tick rather than on their own.
+    private static final long FRAME_WINDOW_MS = 16;
+
+    private static ProgressTicker sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Next uptime at which each scheduled view is due for a progress update.
+    private final Map<ReactVideoView, Long> mDueTimes = new LinkedHashMap<ReactVideoView, Long>();
+    private final Map<RCTDeviceEventEmitter, ProgressBatch> mBatches = new LinkedHashMap<RCTDeviceEventEmitter, ProgressBatch>();
+    private long mPostedTime = -1;
+
+    public static ProgressTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ProgressTicker();
+        }
+        return sInstance;
+    }
+
+    public void schedule(final ReactVideoView view) {
+        if (mDueTimes.containsKey(view)) {
+            return;
+        }
+        long dueTime = SystemClock.uptimeMillis() + view.getProgressUpdateInterval();
+        mDueTimes.put(view, dueTime);
+        postAt(dueTime);
+    }
+
+    public void unschedule(final ReactVideoView view) {
+        if (mDueTimes.remove(view) != null && mDueTimes.isEmpty()) {
+            mHandler.removeCallbacks(this);
+            mPostedTime = -1;
+            mBatches.clear();
+        }
+    }
+
+    @Override
+    public void run() {
+        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_PROGRESS_TICK);
+        long allocCount = VideoCounters.beginProgressTick();
+        try {
+            tick();
+        } finally {
+            VideoCounters.endProgressTick(allocCount);
+            VideoTrace.endSection(VideoTrace.SECTION_PROGRESS_TICK, VideoTrace.NO_TAG, traceStart);
+        }
+    }
+
+    private void tick() {
+        mPostedTime = -1;
+        long now = SystemClock.uptimeMillis();
+        long nextDueTime = Long.MAX_VALUE;
+
+        for (Map.Entry<ReactVideoView, Long> entry : mDueTimes.entrySet()) {
+            long dueTime = entry.getValue();
+            if (dueTime <= now + FRAME_WINDOW_MS) {
+                ReactVideoView view = entry.getKey();
+                view.onProgressTick(getBatch(view.getReactContext()));
+                dueTime = now + view.getProgressUpdateInterval();
+                entry.setValue(dueTime);
+            }
+            nextDueTime = Math.min(nextDueTime, dueTime);
+        }
+
+        for (ProgressBatch batch : mBatches.values()) {
+            batch.dispatch();
+        }
+
+        if (nextDueTime != Long.MAX_VALUE) {
+            postAt(nextDueTime);
+        }
+    }
+
+    private ProgressBatch getBatch(final ReactContext reactContext) {
+        RCTDeviceEventEmitter emitter = reactContext.getJSModule(RCTDeviceEventEmitter.class);
+        ProgressBatch batch = mBatches.get(emitter);
+        if (batch == null) {
+            batch = new ProgressBatch(reactContext, emitter);
+            mBatches.put(emitter, batch);
+        }
+        return batch;
+    }
+
+    private void postAt(final long uptime) {
+        if (mPostedTime != -1 && mPostedTime <= uptime) {
+            return;
+        }
+        mHandler.removeCallbacks(this);
+        mHandler.postAtTime(this, uptime);
+        mPostedTime = uptime;
+    }
+
+    /**
+     * Progress samples collected for one JS context during a single tick. The sample buffers are
+     * reused from tick to tick, and a tick is dropped rather than queued while the previous one has
+     * not yet been handed to JS, since the next tick supersedes it anyway.
+     */
+    public static class ProgressBatch implements Runnable {
+
+        private final ReactContext mReactContext;
+        private final RCTDeviceEventEmitter mEmitter;
+
+        private int mSize = 0;
+        private int[] mTargets = new int[4];
+        private double[] mCurrentTimes = new double[4];
+        private double[] mPlayableDurations = new double[4];
+        private double[][] mBufferedRanges = new double[4][];
+        private int mHeld = 0; // Leading entries kept from a batch that was held back.
+
+        private volatile boolean mInFlight = false;
+
+        /* package */ ProgressBatch(final ReactContext reactContext, final RCTDeviceEventEmitter emitter) {
+            mReactContext = reactContext;
+            mEmitter = emitter;
+        }
+
+        /**
+         * Adds a view's progress. bufferedRanges are only sent when they changed since the view's last
+         * sample and are null otherwise.
+         */
+        public void add(final int target, final double currentTime, final double playableDuration,
+                        final double[] bufferedRanges) {
+            for (int i = 0; i < mHeld; i++) {
+                if (mTargets[i] == target) {
+                    mCurrentTimes[i] = currentTime;
+                    mPlayableDurations[i] = playableDuration;
+                    if (bufferedRanges != null) {
+                        mBufferedRanges[i] = bufferedRanges;
+                    }
+                    return;
+                }
+            }
+            if (mSize == mTargets.length) {
+                int capacity = mSize * 2;
+                int[] targets = new int[capacity];
+                double[] currentTimes = new double[capacity];
+                double[] playableDurations = new double[capacity];
+                double[][] allBufferedRanges = new double[capacity][];
+                System.arraycopy(mTargets, 0, targets, 0, mSize);
+                System.arraycopy(mCurrentTimes, 0, currentTimes, 0, mSize);
+                System.arraycopy(mPlayableDurations, 0, playableDurations, 0, mSize);
+                System.arraycopy(mBufferedRanges, 0, allBufferedRanges, 0, mSize);
+                mTargets = targets;
+                mCurrentTimes = currentTimes;
+                mPlayableDurations = playableDurations;
+                mBufferedRanges = allBufferedRanges;
+            }
+            mTargets[mSize] = target;
+            mCurrentTimes[mSize] = currentTime;
+            mPlayableDurations[mSize] = playableDuration;
+            mBufferedRanges[mSize] = bufferedRanges;
+            mSize++;
+        }
+
+        /* package */ void dispatch() {
+            if (mSize == 0) {
+                return;
+            }
+            if (mInFlight) {
+                holdBack();
+                return;
+            }
+
+            WritableArray targets = VideoArguments.createArray();
+            WritableArray currentTimes = VideoArguments.createArray();
+            WritableArray playableDurations = VideoArguments.createArray();
+            WritableArray bufferedRanges = VideoArguments.createArray();
+            for (int i = 0; i < mSize; i++) {
+                targets.pushInt(mTargets[i]);
+                currentTimes.pushDouble(mCurrentTimes[i]);
+                playableDurations.pushDouble(mPlayableDurations[i]);
+                if (mBufferedRanges[i] == null) {
+                    bufferedRanges.pushNull();
+                } else {
+                    WritableArray ranges = VideoArguments.createArray();
+                    for (double value : mBufferedRanges[i]) {
+                        ranges.pushDouble(value);
+                    }
+                    bufferedRanges.pushArray(ranges);
+                }
+                mBufferedRanges[i] = null;
+            }
+            mSize = 0;
+            mHeld = 0;
+
+            WritableMap event = VideoArguments.createMap();
+            event.putArray(EVENT_PROP_TARGET, targets);
+            event.putArray(ReactVideoView.EVENT_PROP_CURRENT_TIME, currentTimes);
+            event.putArray(ReactVideoView.EVENT_PROP_PLAYABLE_DURATION, playableDurations);
+            event.putArray(EVENT_PROP_BUFFERED_RANGES, bufferedRanges);
+
+            mInFlight = true;
+            long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_EMIT_PROGRESS);
+            try {
+                VideoCounters.onBridgeEvent(EVENT_PROGRESS_BATCH);
+                mEmitter.emit(EVENT_PROGRESS_BATCH, event);
+            } finally {
+                VideoTrace.endSection(VideoTrace.SECTION_EMIT_PROGRESS, VideoTrace.NO_TAG, traceStart);
+            }
+            // Runs on the JS queue after the emit above has been dispatched to JS.
+            mReactContext.runOnJSQueueThread(this);
+        }
+
+        /**
+         * Called instead of sending while JS hasn't received the previous batch. Positions are sampled
+         * again for the next batch, but buffered ranges are only taken once when they change, so the
+         * entries that carry them are kept and merged with the next samples of their views.
+         */
+        private void holdBack() {
+            int held = 0;
+            for (int i = 0; i < mSize; i++) {
+                if (mBufferedRanges[i] != null) {
+                    mTargets[held] = mTargets[i];
+                    mCurrentTimes[held] = mCurrentTimes[i];
+                    mPlayableDurations[held] = mPlayableDurations[i];
+                    mBufferedRanges[held] = mBufferedRanges[i];
+                    held++;
+                }
+            }
+            for (int i = held; i < mSize; i++) {
+                mBufferedRanges[i] = null;
+            }
+            mSize = held;
+            mHeld = held;
+        }
+
+        @Override
+        public void run() {
+            mInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.brentvatne.react;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.IOException;
+
+public class ReactVideoCacheModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoCache";
+
+    public static final String STAT_SIZE = "size";
+    public static final String STAT_MAX_BYTES = "maxBytes";
+
+    public ReactVideoCacheModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    @ReactMethod
+    public void setMaxBytes(final double maxBytes) {
+        VideoCache cache = getCache();
+        if (cache != null) {
+            cache.setMaxBytes((long) maxBytes);
+        }
+    }
+
+    @ReactMethod
+    public void clear() {
+        VideoCache cache = getCache();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @ReactMethod
+    public void getStats(final Callback callback) {
+        VideoCache cache = getCache();
+        WritableMap stats = VideoArguments.createMap();
+        stats.putDouble(STAT_SIZE, cache == null ? 0 : cache.getSize());
+        stats.putDouble(STAT_MAX_BYTES, cache == null ? 0 : cache.getMaxBytes());
+        callback.invoke(stats);
+    }
+
+    private VideoCache getCache() {
+        try {
+            return VideoCacheProxy.getInstance(getReactApplicationContext()).getCache();
+        } catch (IOException e) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Video cache unavailable", e);
+            return null;
+        }
+    }
+}
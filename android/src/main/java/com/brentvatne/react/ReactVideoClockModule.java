@@ -0,0 +1,31 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+public class ReactVideoClockModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoClock";
+
+    public ReactVideoClockModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    /**
+     * Calls back with the clock of the video with the given tag extrapolated to now, or with null if
+     * it hasn't loaded anything. Answered from the latest {@link VideoClock}, so this doesn't wait
+     * for the UI thread.
+     */
+    @ReactMethod
+    public void getPosition(final int tag, final Callback callback) {
+        VideoClock clock = VideoClock.get(tag);
+        callback.invoke(clock == null ? null : clock.toWritableMapNow());
+    }
+}
@@ -0,0 +1,84 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
+
+public class ReactVideoDownloadsModule extends ReactContextBaseJavaModule implements VideoDownloads.Listener {
+
+    public static final String REACT_CLASS = "RCTVideoDownloads";
+
+    public static final String EVENT_DOWNLOAD = "onVideoDownload";
+
+    public ReactVideoDownloadsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    @Override
+    public void initialize() {
+        getVideoDownloads().setListener(this);
+    }
+
+    /**
+     * Starts or resumes downloading a network source. The callback receives an error message if the
+     * source can't be downloaded, and null once the download is queued.
+     */
+    @ReactMethod
+    public void download(final ReadableMap src, final Callback callback) {
+        try {
+            getVideoDownloads().download(VideoSource.fromReadableMap(src));
+            callback.invoke((Object) null);
+        } catch (IllegalArgumentException e) {
+            callback.invoke(e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void pause(final String uri) {
+        getVideoDownloads().pause(uri);
+    }
+
+    @ReactMethod
+    public void remove(final String uri) {
+        getVideoDownloads().remove(uri);
+    }
+
+    @ReactMethod
+    public void getDownloads(final Callback callback) {
+        callback.invoke(getVideoDownloads().getDownloads());
+    }
+
+    @ReactMethod
+    public void setQuota(final double quota) {
+        getVideoDownloads().setQuota((long) quota);
+    }
+
+    @Override
+    public void onDownloadChanged(WritableMap download) {
+        VideoCounters.onBridgeEvent(EVENT_DOWNLOAD);
+        getReactApplicationContext().getJSModule(RCTDeviceEventEmitter.class).emit(EVENT_DOWNLOAD, download);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        VideoDownloads downloads = getVideoDownloads();
+        synchronized (downloads) {
+            if (downloads.getListener() == this) {
+                downloads.setListener(null);
+            }
+        }
+    }
+
+    private VideoDownloads getVideoDownloads() {
+        return VideoDownloads.getInstance(getReactApplicationContext());
+    }
+}
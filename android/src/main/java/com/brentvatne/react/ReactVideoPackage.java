@@ -15,7 +15,18 @@ public class ReactVideoPackage implements ReactPackage {
 
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+        MemoryTrimmer.register(reactContext);
+
+        return Arrays.<NativeModule>asList(
+                new ReactVideoPoolModule(reactContext),
+                new ReactVideoPreloaderModule(reactContext),
+                new ReactVideoCacheModule(reactContext),
+                new ReactVideoStatsModule(reactContext),
+                new ReactVideoThumbnailsModule(reactContext),
+                new ReactVideoClockModule(reactContext),
+                new ReactVideoDownloadsModule(reactContext),
+                new ReactVideoTraceModule(reactContext)
+        );
     }
 
     @Override
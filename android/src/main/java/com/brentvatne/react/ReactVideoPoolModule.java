@@ -0,0 +1,66 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.UiThreadUtil;
+
+public class ReactVideoPoolModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoPool";
+
+    public ReactVideoPoolModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    @ReactMethod
+    public void getStats(final Callback callback) {
+        callback.invoke(MediaPlayerPool.getInstance().getStats());
+    }
+
+    @ReactMethod
+    public void setMaxPlayers(final int maxPlayers) {
+        MediaPlayerPool.getInstance().setMaxPlayers(maxPlayers);
+    }
+
+    @ReactMethod
+    public void setMaxRetained(final int maxRetained) {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                RetainedPlayers.getInstance().setMaxRetained(maxRetained);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setMaxRetainedSurfaces(final int maxRetained) {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                RetainedSurfaces.getInstance().setMaxRetained(maxRetained);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setMaxDecoders(final int maxDecoders) {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                DecoderGovernor.getInstance().setMaxDecoders(maxDecoders);
+            }
+        });
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        MediaPlayerPool.getInstance().clear();
+    }
+}
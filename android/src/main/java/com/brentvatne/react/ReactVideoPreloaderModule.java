@@ -0,0 +1,94 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.UiThreadUtil;
+
+public class ReactVideoPreloaderModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "VideoPreloader";
+
+    public ReactVideoPreloaderModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    /**
+     * Starts preparing a player for src. The callback is called with an error message if src can't
+     * be read, or without arguments once the source is queued.
+     */
+    @ReactMethod
+    public void preload(final ReadableMap src, final Callback callback) {
+        final VideoSource source;
+        try {
+            source = VideoSource.fromReadableMap(src);
+        } catch (IllegalArgumentException e) {
+            callback.invoke(e.getMessage());
+            return;
+        }
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                VideoPreloader.getInstance().preload(getReactApplicationContext(), source);
+            }
+        });
+        callback.invoke();
+    }
+
+    @ReactMethod
+    public void cancel(final ReadableMap src, final Callback callback) {
+        final VideoSource source;
+        try {
+            source = VideoSource.fromReadableMap(src);
+        } catch (IllegalArgumentException e) {
+            callback.invoke(e.getMessage());
+            return;
+        }
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                VideoPreloader.getInstance().cancel(source);
+            }
+        });
+        callback.invoke();
+    }
+
+    /**
+     * Warms up DNS and connections for hosts that are about to be played from, e.g. the CDNs of a
+     * feed before its first video is mounted.
+     */
+    @ReactMethod
+    public void prewarm(final ReadableArray urls) {
+        for (int i = 0; i < urls.size(); i++) {
+            VideoHttp.prewarm(urls.getString(i));
+        }
+    }
+
+    @ReactMethod
+    public void setMaxPreloaded(final int maxPreloaded) {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                VideoPreloader.getInstance().setMaxPreloaded(maxPreloaded);
+            }
+        });
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                VideoPreloader.getInstance().clear();
+            }
+        });
+    }
+}
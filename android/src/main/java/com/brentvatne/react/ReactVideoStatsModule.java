@@ -0,0 +1,30 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+public class ReactVideoStatsModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoStats";
+
+    public ReactVideoStatsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    @ReactMethod
+    public void getStats(final Callback callback) {
+        callback.invoke(PlaybackStats.getAggregate().toWritableMap());
+    }
+
+    @ReactMethod
+    public void reset() {
+        PlaybackStats.getAggregate().reset();
+    }
+}
@@ -0,0 +1,117 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Exposes {@link VideoThumbnails} to JS. Callbacks are invoked node style, with an error message or
+ * null first and the result second.
+ */
+public class ReactVideoThumbnailsModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoThumbnails";
+
+    public static final String OPTION_WIDTH = "width";
+    public static final String OPTION_EXACT = "exact";
+    public static final String OPTION_START = "start";
+    public static final String OPTION_INTERVAL = "interval";
+    public static final String OPTION_COUNT = "count";
+    public static final String OPTION_COLUMNS = "columns";
+
+    private static final int DEFAULT_SPRITE_FRAME_WIDTH = 160;
+    private static final int DEFAULT_SPRITE_COLUMNS = 10;
+
+    public ReactVideoThumbnailsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    /**
+     * Extracts the frame at time seconds. Options: width (scales the frame, keeping its aspect ratio)
+     * and exact (decode the exact frame instead of the closest keyframe).
+     */
+    @ReactMethod
+    public void getFrame(final ReadableMap src, final double time, final ReadableMap options, final Callback callback) {
+        int width = options.hasKey(OPTION_WIDTH) ? options.getInt(OPTION_WIDTH) : 0;
+        boolean exact = options.hasKey(OPTION_EXACT) && options.getBoolean(OPTION_EXACT);
+        VideoSource source;
+        try {
+            source = VideoSource.fromReadableMap(src);
+        } catch (IllegalArgumentException e) {
+            callback.invoke(e.getMessage());
+            return;
+        }
+        getThumbnails().getFrame(source, Math.round(time * 1000), width, exact, toThumbnailsCallback(callback));
+    }
+
+    /**
+     * Extracts count frames starting at start seconds, interval seconds apart, into a single image.
+     * Options: start, interval, count (all required), width of each frame and columns per row.
+     */
+    @ReactMethod
+    public void getSpriteSheet(final ReadableMap src, final ReadableMap options, final Callback callback) {
+        if (!options.hasKey(OPTION_INTERVAL) || !options.hasKey(OPTION_COUNT)) {
+            callback.invoke("interval and count are required");
+            return;
+        }
+        double start = options.hasKey(OPTION_START) ? options.getDouble(OPTION_START) : 0;
+        double interval = options.getDouble(OPTION_INTERVAL);
+        int count = options.getInt(OPTION_COUNT);
+        int width = options.hasKey(OPTION_WIDTH) ? options.getInt(OPTION_WIDTH) : DEFAULT_SPRITE_FRAME_WIDTH;
+        int columns = options.hasKey(OPTION_COLUMNS) ? options.getInt(OPTION_COLUMNS) : DEFAULT_SPRITE_COLUMNS;
+        if (interval <= 0 || count <= 0 || width <= 0 || columns <= 0) {
+            callback.invoke("interval, count, width and columns must be positive");
+            return;
+        }
+        VideoSource source;
+        try {
+            source = VideoSource.fromReadableMap(src);
+        } catch (IllegalArgumentException e) {
+            callback.invoke(e.getMessage());
+            return;
+        }
+        getThumbnails().getSpriteSheet(source, Math.round(start * 1000),
+                Math.round(interval * 1000), count, width, Math.min(columns, count), toThumbnailsCallback(callback));
+    }
+
+    @ReactMethod
+    public void setDiskCacheEnabled(final boolean enabled) {
+        getThumbnails().setDiskCacheEnabled(enabled);
+    }
+
+    @ReactMethod
+    public void setMaxDiskBytes(final double maxBytes) {
+        getThumbnails().setMaxDiskBytes((long) maxBytes);
+    }
+
+    @ReactMethod
+    public void clear() {
+        getThumbnails().clear();
+    }
+
+    private VideoThumbnails getThumbnails() {
+        return VideoThumbnails.getInstance(getReactApplicationContext());
+    }
+
+    private static VideoThumbnails.Callback toThumbnailsCallback(final Callback callback) {
+        return new VideoThumbnails.Callback() {
+            @Override
+            public void onResult(WritableMap result) {
+                callback.invoke(null, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.invoke(e.getMessage() == null ? e.toString() : e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+public class ReactVideoTraceModule extends ReactContextBaseJavaModule {
+
+    public static final String REACT_CLASS = "RCTVideoTrace";
+
+    public ReactVideoTraceModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+
+    @ReactMethod
+    public void setEnabled(final boolean enabled) {
+        VideoTrace.setEnabled(enabled);
+        VideoCounters.setEnabled(enabled);
+    }
+
+    /**
+     * Calls back with the spans recorded since tracing was enabled or cleared, as a Chrome trace event
+     * JSON string. See {@link VideoTrace#dump()}.
+     */
+    @ReactMethod
+    public void dump(final Callback callback) {
+        callback.invoke(VideoTrace.dump());
+    }
+
+    /**
+     * Calls back with the {@link VideoCounters} collected while tracing.
+     */
+    @ReactMethod
+    public void getCounters(final Callback callback) {
+        callback.invoke(VideoCounters.toWritableMap());
+    }
+
+    @ReactMethod
+    public void clear() {
+        VideoTrace.clear();
+        VideoCounters.reset();
+    }
+}
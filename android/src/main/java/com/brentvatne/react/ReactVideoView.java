@@ -1,14 +1,18 @@
 package com.brentvatne.react;
 
+import android.graphics.SurfaceTexture;
 import android.media.MediaPlayer;
-import android.net.Uri;
+import android.media.PlaybackParams;
+import android.os.Build;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.MotionEvent;
-import android.webkit.CookieManager;
+import android.view.Surface;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import android.widget.MediaController;
-import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.uimanager.ThemedReactContext;
@@ -16,11 +20,11 @@ import com.facebook.react.uimanager.events.RCTEventEmitter;
 import com.yqritc.scalablevideoview.ScalableType;
 import com.yqritc.scalablevideoview.ScalableVideoView;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Method;
+import java.util.List;
 
 public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnPreparedListener, MediaPlayer
-        .OnErrorListener, MediaPlayer.OnBufferingUpdateListener, MediaPlayer.OnCompletionListener, MediaPlayer.OnInfoListener, LifecycleEventListener, MediaController.MediaPlayerControl {
+        .OnErrorListener, MediaPlayer.OnBufferingUpdateListener, MediaPlayer.OnCompletionListener, MediaPlayer.OnInfoListener, MediaPlayer.OnSeekCompleteListener, LifecycleEventListener, MediaController.MediaPlayerControl {
 
     public enum Events {
         EVENT_LOAD_START("onVideoLoadStart"),
@@ -31,7 +35,12 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         EVENT_END("onVideoEnd"),
         EVENT_STALLED("onPlaybackStalled"),
         EVENT_RESUME("onPlaybackResume"),
-        EVENT_READY_FOR_DISPLAY("onReadyForDisplay");
+        EVENT_READY_FOR_DISPLAY("onReadyForDisplay"),
+        EVENT_PLAYBACK_RATE_CHANGE("onPlaybackRateChange"),
+        EVENT_PLAYBACK_STATS("onPlaybackStats"),
+        EVENT_PLAYLIST_ITEM_CHANGE("onPlaylistItemChange"),
+        EVENT_RECOVERY("onVideoRecovery"),
+        EVENT_CLOCK("onVideoClock");
 
         private final String mName;
 
@@ -61,36 +70,129 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
     public static final String EVENT_PROP_HEIGHT = "height";
     public static final String EVENT_PROP_ORIENTATION = "orientation";
 
+    public static final String EVENT_PROP_PLAYBACK_RATE = "playbackRate";
+    public static final String EVENT_PROP_INDEX = "index";
+
     public static final String EVENT_PROP_ERROR = "error";
     public static final String EVENT_PROP_WHAT = "what";
     public static final String EVENT_PROP_EXTRA = "extra";
+    public static final String EVENT_PROP_MESSAGE = "message";
+
+    public static final String EVENT_PROP_TYPE = "type";
+    public static final String EVENT_PROP_REASON = "reason";
+    public static final String EVENT_PROP_CATEGORY = "category";
+    public static final String EVENT_PROP_ATTEMPT = "attempt";
+    public static final String EVENT_PROP_DELAY = "delay";
+
+    public static final String RECOVERY_RETRY = "retry";
+    public static final String RECOVERY_RECOVERED = "recovered";
+    public static final String RECOVERY_FAILED = "failed";
+    public static final String RECOVERY_REASON_ERROR = "error";
+    public static final String RECOVERY_REASON_STALL = "stall";
+
+    // How often the stall watchdog samples the position when progress updates are off.
+    private static final int WATCHDOG_INTERVAL_MS = 1000;
+    // Playback has to get this far past the position it was recovered from to count as recovered.
+    private static final int RECOVERY_PROGRESS_MS = 1000;
+
+    private static final int SEEK_CLOSEST_SYNC = 2; // MediaPlayer.SEEK_CLOSEST_SYNC
+    private static Method sSeekToWithMode;
 
     private ThemedReactContext mThemedReactContext;
     private RCTEventEmitter mEventEmitter;
 
-    private Handler mProgressUpdateHandler = new Handler();
-    private Runnable mProgressUpdateRunnable = null;
     private Handler videoControlHandler = new Handler();
     private MediaController mediaController;
 
 
-    private String mSrcUriString = null;
-    private String mSrcType = "mp4";
-    private boolean mSrcIsNetwork = false;
-    private boolean mSrcIsAsset = false;
+    private VideoSource mSource = new VideoSource(null, "mp4", false, false);
+    private VideoSource mPendingSource = null;
+    private VideoSource mSrcPropSource = null; // Last src prop, used whenever there is no playlist.
+    private List<VideoSource> mPendingPlaylist = null;
+    private final PlaylistQueue mPlaylist = new PlaylistQueue();
+    private boolean mSourceFailed = false;
+    private VideoSourceResolver.Request mSourceRequest = null;
+    private VideoCacheProxy.SessionHandle mSourceSession = null; // Serves the source set on mMediaPlayer.
     private ScalableType mResizeMode = ScalableType.LEFT_TOP;
     private boolean mRepeat = false;
     private boolean mPaused = false;
     private boolean mMuted = false;
     private float mVolume = 1.0f;
     private float mRate = 1.0f;
+    private float mAppliedRate = 1.0f; // Speed currently set on mMediaPlayer.
+    private float mReportedRate = 0.0f; // Last rate sent in onPlaybackRateChange, 0 while not playing.
     private boolean mPlayInBackground = false;
+    private int mProgressUpdateInterval = 250;
+    private int mStatsUpdateInterval = 0;
+    private boolean mRetainOnDetach = false;
+    private boolean mRetainSurface = false;
+    private boolean mModifiersChanged = false;
+    private int mPendingSeek = -1;
+    private boolean mScrubbing = false;
+
+    // At most one seek is issued to the player at a time; later targets replace the queued one.
+    private boolean mSeekInFlight = false;
+    private int mSeekTarget = -1;
+    private boolean mSeekExact = true;
+    private int mQueuedSeek = -1;
 
     private boolean mMediaPlayerValid = false; // True if mMediaPlayer is in prepared, started, paused or completed state.
     private int mVideoDuration = 0;
-    private int mVideoBufferedDuration = 0;
+    private int mBufferedPercent = 0;
+    private final BufferedRanges mBufferedRanges = new BufferedRanges();
     private boolean isCompleted = false;
+    private int mResumePosition = -1; // Position to seek to once the player is prepared again, or -1.
+    private PlaybackStats mPlaybackStats = new PlaybackStats();
+    private long mLastStatsEventTime = 0;
     private boolean mUseNativeControls = false;
+    private long mLastInteractionTime = 0;
+    private boolean mAttachedToWindow = false;
+    private boolean mReleasedForMemory = false; // Load the source again once the host resumes.
+
+    private RecoveryPolicy mRecoveryPolicy = null; // Failures are reported right away without one.
+    private int mRecoveryAttempts = 0;
+    private int mRecoveryPosition = -1;
+    private boolean mRecovering = false; // Loading the source again after a failure.
+    private int mLastKnownPosition = 0; // Where to recover from once the player can't be asked anymore.
+    private int mWatchdogPosition = -1;
+    private long mWatchdogTime = 0;
+    private int mStallGivenUpPosition = -1; // Not watched for stalls again until playback moves on from here.
+
+    private boolean mStalled = false; // Buffering while playing.
+    private float mClockRate = 0.0f; // Rate of the last published VideoClock.
+    private boolean mClockLooping = false; // Whether the last published VideoClock wraps around.
+    private boolean mResumeSeekInFlight = false; // Seeking to mResumePosition after preparing.
+    private long mPrepareTraceStart = -1; // Of the VideoTrace section open until the player is prepared.
+
+    private final Runnable mStallRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mMediaPlayerValid && !isCompleted
+                    && !recover(RecoveryPolicy.CATEGORY_STALL, RECOVERY_REASON_STALL, 0, 0)) {
+                // Out of retries. Reloading again would just start another round of them.
+                mStallGivenUpPosition = mMediaPlayer.getCurrentPosition();
+                emitError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_TIMED_OUT, null);
+            }
+        }
+    };
+
+    private final Runnable mRecoveryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Skipped if the source was loaded again meanwhile, e.g. after being attached again.
+            if (mMediaPlayer == null && mAttachedToWindow && !mReleasedForMemory && mSource.getUri() != null) {
+                loadSource();
+            }
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    DecoderGovernor.getInstance().scheduleRebalance();
+                }
+            };
 
     public ReactVideoView(ThemedReactContext themedReactContext) {
         super(themedReactContext);
@@ -98,28 +200,192 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         mThemedReactContext = themedReactContext;
         mEventEmitter = themedReactContext.getJSModule(RCTEventEmitter.class);
         themedReactContext.addLifecycleEventListener(this);
+        MemoryTrimmer.getInstance().addView(this);
 
-        initializeMediaPlayerIfNeeded();
         setSurfaceTextureListener(this);
+    }
 
-        mProgressUpdateRunnable = new Runnable() {
-            @Override
-            public void run() {
+    /* package */ void onProgressTick(final ProgressTicker.ProgressBatch batch) {
+        if (mMediaPlayerValid && !isCompleted) {
+            int position = mMediaPlayer.getCurrentPosition();
+            if (mRepeat && !mSeekInFlight && mVideoDuration > 0 && position < mLastKnownPosition - mVideoDuration / 2) {
+                // Looped without telling us, so the last clock still extrapolates from the last round.
+                emitClock(VideoClock.REASON_LOOP);
+            }
+            mLastKnownPosition = position;
+            if (mProgressUpdateInterval > 0) {
+                double currentTime = position / 1000.0;
+                mBufferedRanges.update(mSource, mVideoDuration, mBufferedPercent);
+                batch.add(getId(), currentTime, mBufferedRanges.getBufferedEnd(currentTime),
+                        mBufferedRanges.takeChanged());
+            }
+            if (mRecoveryAttempts > 0 && position >= mRecoveryPosition + RECOVERY_PROGRESS_MS) {
+                mRecoveryAttempts = 0;
+            }
+            checkForStall(position);
+        }
 
-                if (mMediaPlayerValid && !isCompleted) {
-                    WritableMap event = Arguments.createMap();
-                    event.putDouble(EVENT_PROP_CURRENT_TIME, mMediaPlayer.getCurrentPosition() / 1000.0);
-                    event.putDouble(EVENT_PROP_PLAYABLE_DURATION, mVideoBufferedDuration / 1000.0); //TODO:mBufferUpdateRunnable
-                    mEventEmitter.receiveEvent(getId(), Events.EVENT_PROGRESS.toString(), event);
-                }
-                mProgressUpdateHandler.postDelayed(mProgressUpdateRunnable, 250);
+        if (mStatsUpdateInterval > 0 && SystemClock.elapsedRealtime() - mLastStatsEventTime >= mStatsUpdateInterval) {
+            emitPlaybackStats();
+        }
+    }
+
+    /**
+     * Sends an event of this view to JS.
+     */
+    private void receiveEvent(final Events event, final WritableMap payload) {
+        VideoCounters.onBridgeEvent(event.toString());
+        mEventEmitter.receiveEvent(getId(), event.toString(), payload);
+    }
+
+    private void emitPlaybackStats() {
+        mLastStatsEventTime = SystemClock.elapsedRealtime();
+        receiveEvent(Events.EVENT_PLAYBACK_STATS, mPlaybackStats.toWritableMap());
+    }
+
+    /* package */ ThemedReactContext getReactContext() {
+        return mThemedReactContext;
+    }
+
+    /* package */ int getProgressUpdateInterval() {
+        // The stall watchdog still needs ticks while progress updates are off.
+        return mProgressUpdateInterval > 0 ? mProgressUpdateInterval : WATCHDOG_INTERVAL_MS;
+    }
+
+    private void updateProgressTicking() {
+        boolean playing = mMediaPlayerValid && !isCompleted && mMediaPlayer.isPlaying();
+        mPlaybackStats.setPlaying(playing);
+        emitPlaybackRateIfChanged(playing ? mAppliedRate : 0.0f);
+        updateClock(null);
+
+        if (playing && (mProgressUpdateInterval > 0 || isWatchingForStalls())) {
+            ProgressTicker.getInstance().schedule(this);
+        } else {
+            ProgressTicker.getInstance().unschedule(this);
+            mWatchdogPosition = -1;
+        }
+    }
+
+    /**
+     * Publishes a new clock if the rate at which the position advances changed, e.g. because playback
+     * started, paused or stalled. The reason is derived from the change when null.
+     */
+    private void updateClock(final String reason) {
+        if (getClockRate() == mClockRate) {
+            return;
+        }
+        if (reason != null) {
+            emitClock(reason);
+        } else if (mClockRate == 0.0f) {
+            emitClock(VideoClock.REASON_PLAY);
+        } else if (getClockRate() == 0.0f) {
+            emitClock(VideoClock.REASON_PAUSE);
+        } else {
+            emitClock(VideoClock.REASON_RATE);
+        }
+    }
+
+    private float getClockRate() {
+        boolean advancing = mMediaPlayerValid && !isCompleted && !mStalled && mMediaPlayer.isPlaying();
+        return advancing ? mAppliedRate : 0.0f;
+    }
+
+    private void emitClock(final String reason) {
+        mClockRate = getClockRate();
+        mClockLooping = mRepeat;
+        int position = mMediaPlayerValid ? mMediaPlayer.getCurrentPosition() : mLastKnownPosition;
+        mLastKnownPosition = position;
+        VideoClock clock = new VideoClock(position, mVideoDuration, mClockRate, mClockLooping, reason);
+        if (getId() != NO_ID) {
+            VideoClock.publish(getId(), clock);
+        }
+        receiveEvent(Events.EVENT_CLOCK, clock.toWritableMap());
+    }
+
+    private boolean isWatchingForStalls() {
+        return mRecoveryPolicy != null && mRecoveryPolicy.getStallTimeout() > 0;
+    }
+
+    /**
+     * Starts a recovery once the position hasn't moved for the stall timeout while playing. Called on
+     * every tick, which only happens while the player is playing. After a stall that couldn't be
+     * recovered from, watching resumes once playback gets going again or is sought elsewhere.
+     */
+    private void checkForStall(final int position) {
+        if (!isWatchingForStalls() || !isPlaybackRequested()) {
+            return;
+        }
+        if (mStallGivenUpPosition >= 0) {
+            if (Math.abs(position - mStallGivenUpPosition) < RECOVERY_PROGRESS_MS) {
+                return;
             }
-        };
-        mProgressUpdateHandler.post(mProgressUpdateRunnable);
+            mStallGivenUpPosition = -1;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (position != mWatchdogPosition || mSeekInFlight) {
+            mWatchdogPosition = position;
+            mWatchdogTime = now;
+        } else if (now - mWatchdogTime >= mRecoveryPolicy.getStallTimeout()) {
+            mWatchdogPosition = -1;
+            // Releasing the player unschedules this view, which can't happen from within a tick.
+            videoControlHandler.post(mStallRunnable);
+        }
+    }
+
+    /**
+     * Schedules loading the source again from the last known position if the policy allows another
+     * attempt for this kind of failure, and reports the attempt. Returns false if the failure is final.
+     */
+    private boolean recover(final String category, final String reason, final int what, final int extra) {
+        if (mRecoveryPolicy == null) {
+            return false;
+        }
+        int position = mMediaPlayerValid ? mMediaPlayer.getCurrentPosition() : mLastKnownPosition;
+        boolean retry = RecoveryPolicy.isRetryable(category)
+                && mRecoveryAttempts < mRecoveryPolicy.getMaxRetries();
+        long delay = retry ? mRecoveryPolicy.getRetryDelay(mRecoveryAttempts + 1) : 0;
+
+        WritableMap event = VideoArguments.createMap();
+        event.putString(EVENT_PROP_TYPE, retry ? RECOVERY_RETRY : RECOVERY_FAILED);
+        event.putString(EVENT_PROP_REASON, reason);
+        event.putString(EVENT_PROP_CATEGORY, category);
+        event.putInt(EVENT_PROP_WHAT, what);
+        event.putInt(EVENT_PROP_EXTRA, extra);
+        event.putInt(EVENT_PROP_ATTEMPT, mRecoveryAttempts + 1);
+        event.putDouble(EVENT_PROP_DELAY, delay);
+        event.putDouble(EVENT_PROP_CURRENT_TIME, position / 1000.0);
+        receiveEvent(Events.EVENT_RECOVERY, event);
+
+        if (!retry) {
+            mRecoveryAttempts = 0;
+            mRecovering = false;
+            return false;
+        }
+
+        mRecoveryAttempts++;
+        mRecovering = true;
+        mRecoveryPosition = position;
+        mResumePosition = position;
+        mSourceFailed = true;
+        // A player that failed may be unusable even after a reset, so it doesn't go back to the pool.
+        releaseMediaPlayer(true);
+        videoControlHandler.removeCallbacks(mRecoveryRunnable);
+        videoControlHandler.postDelayed(mRecoveryRunnable, delay);
+        return true;
+    }
+
+    private void cancelRecovery() {
+        videoControlHandler.removeCallbacks(mStallRunnable);
+        videoControlHandler.removeCallbacks(mRecoveryRunnable);
+        mRecovering = false;
+        mRecoveryAttempts = 0;
+        mRecoveryPosition = -1;
+        mStallGivenUpPosition = -1;
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        onInteraction();
         if (mUseNativeControls) {
             initializeMediaControllerIfNeeded();
             mediaController.show();
@@ -128,18 +394,160 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         return super.onTouchEvent(event);
     }
 
+    private void onInteraction() {
+        mLastInteractionTime = SystemClock.uptimeMillis();
+        DecoderGovernor.getInstance().scheduleRebalance();
+    }
+
+    /* package */ long getLastInteractionTime() {
+        return mLastInteractionTime;
+    }
+
+    /**
+     * Returns whether the props ask for playback, regardless of whether the view currently has a player.
+     */
+    /* package */ boolean isPlaybackRequested() {
+        return !mPaused && mRate != 0.0f;
+    }
+
+    /**
+     * Called by the {@link DecoderGovernor} when this view has to give up its player for a more
+     * important one. The source is loaded again, from the current position, in {@link #restoreDecoder()}.
+     */
+    /* package */ void demoteDecoder() {
+        RetainedPlayers.getInstance().remove(this);
+        releasePlayerForRestore();
+    }
+
+    /**
+     * Called by the {@link DecoderGovernor} once this view may hold a player again.
+     */
+    /* package */ void restoreDecoder() {
+        if (mMediaPlayer != null) {
+            return;
+        }
+        if (mSource.getUri() != null) {
+            loadSource();
+        } else {
+            DecoderGovernor.getInstance().release(this);
+        }
+    }
+
+    /* package */ void releaseUpcomingPlayers() {
+        mPlaylist.releaseUpcoming();
+    }
+
+    /**
+     * Called by the {@link MemoryTrimmer} to free the player unless it is playing. The source, position
+     * and paused state are kept, and the source is loaded again once the view is shown while the host
+     * is resumed. Completed videos keep their player, since they would otherwise start over.
+     */
+    /* package */ void releasePlayerIfPaused() {
+        if (mMediaPlayer == null || isCompleted || (mMediaPlayerValid && mMediaPlayer.isPlaying())) {
+            return;
+        }
+        mReleasedForMemory = true;
+        RetainedPlayers.getInstance().remove(this);
+        releasePlayerForRestore();
+    }
+
+    private void restoreIfReleasedForMemory() {
+        if (mReleasedForMemory && mAttachedToWindow && isShown()) {
+            mReleasedForMemory = false;
+            if (mMediaPlayer == null && mSource.getUri() != null) {
+                loadSource();
+            }
+        }
+    }
+
     private void initializeMediaPlayerIfNeeded() {
         if (mMediaPlayer == null) {
             mMediaPlayerValid = false;
-            mMediaPlayer = new MediaPlayer();
-            mMediaPlayer.setScreenOnWhilePlaying(true);
-            mMediaPlayer.setOnVideoSizeChangedListener(this);
-            mMediaPlayer.setOnErrorListener(this);
-            mMediaPlayer.setOnPreparedListener(this);
-            mMediaPlayer.setOnBufferingUpdateListener(this);
-            mMediaPlayer.setOnCompletionListener(this);
-            mMediaPlayer.setOnInfoListener(this);
+            mMediaPlayer = MediaPlayerPool.getInstance().acquire();
+            attachMediaPlayerListeners();
+        }
+    }
+
+    private void attachMediaPlayerListeners() {
+        mMediaPlayer.setScreenOnWhilePlaying(true);
+        mMediaPlayer.setOnVideoSizeChangedListener(this);
+        mMediaPlayer.setOnErrorListener(this);
+        mMediaPlayer.setOnPreparedListener(this);
+        mMediaPlayer.setOnBufferingUpdateListener(this);
+        mMediaPlayer.setOnCompletionListener(this);
+        mMediaPlayer.setOnInfoListener(this);
+        mMediaPlayer.setOnSeekCompleteListener(this);
+
+        // A pooled or preloaded player may be leased after our surface is already available.
+        if (isAvailable()) {
+            mMediaPlayer.setSurface(new Surface(getSurfaceTexture()));
+        }
+    }
+
+    private void releaseMediaPlayer() {
+        releaseMediaPlayer(false);
+    }
+
+    /**
+     * Releases the player and gives up this view's {@link DecoderGovernor} slot.
+     */
+    private void releaseMediaPlayer(final boolean discard) {
+        teardownMediaPlayer(discard);
+        DecoderGovernor.getInstance().release(this);
+    }
+
+    /**
+     * Releases the player but keeps this view's slot, for when another player takes its place right
+     * away.
+     */
+    private void teardownMediaPlayer(final boolean discard) {
+        cancelSourceResolution();
+        resetSeekState();
+        endPrepareTrace();
+        mStalled = false;
+        if (mMediaPlayer != null) {
+            mMediaPlayerValid = false;
+            if (discard) {
+                MediaPlayerPool.getInstance().discard(mMediaPlayer);
+            } else {
+                MediaPlayerPool.getInstance().release(mMediaPlayer);
+            }
+            mMediaPlayer = null;
+        }
+        closeSourceSession();
+        updateProgressTicking();
+    }
+
+    private void closeSourceSession() {
+        if (mSourceSession != null) {
+            mSourceSession.close();
+            mSourceSession = null;
+        }
+    }
+
+    /**
+     * Releases the player while remembering the playback position, so that the next attach prepares the
+     * source again and resumes where it left off.
+     */
+    /* package */ void releasePlayerForRestore() {
+        if (mMediaPlayerValid && !isCompleted) {
+            mResumePosition = mMediaPlayer.getCurrentPosition();
         }
+        releaseMediaPlayer();
+        mPlaylist.releaseUpcoming();
+    }
+
+    public void cleanupMediaPlayerResources() {
+        cancelRecovery();
+        mPlaybackStats.finish();
+        RetainedPlayers.getInstance().remove(this);
+        releaseMediaPlayer();
+        mPlaylist.releaseUpcoming();
+        DecoderGovernor.getInstance().unregister(this);
+        MemoryTrimmer.getInstance().removeView(this);
+        VideoClock.remove(getId());
+        RetainedSurfaces.getInstance().release(this);
+        mThemedReactContext.removeLifecycleEventListener(this);
     }
 
     private void initializeMediaControllerIfNeeded() {
@@ -148,108 +556,368 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         }
     }
 
-    public void setSrc(final String uriString, final String type, final boolean isNetwork, final boolean isAsset) {
+    public void setSrc(final VideoSource source) {
+        mSrcPropSource = source;
+        if (mPlaylist.isEmpty()) {
+            mPendingSource = source;
+        }
+    }
+
+    /**
+     * Reports a src or playlist prop that couldn't be read, e.g. one with a header that isn't a
+     * string. The prop is ignored, so the view goes on with what it was playing.
+     */
+    public void onInvalidSource(final IllegalArgumentException e) {
+        Log.w(ReactVideoViewManager.REACT_CLASS, "Ignoring invalid source", e);
+        emitError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_MALFORMED, e.getMessage());
+    }
+
+    /**
+     * Sends onError, with a message only where MediaPlayer's codes don't say what went wrong.
+     */
+    private void emitError(final int what, final int extra, final String message) {
+        WritableMap error = VideoArguments.createMap();
+        error.putInt(EVENT_PROP_WHAT, what);
+        error.putInt(EVENT_PROP_EXTRA, extra);
+        if (message != null) {
+            error.putString(EVENT_PROP_MESSAGE, message);
+        }
+        WritableMap event = VideoArguments.createMap();
+        event.putMap(EVENT_PROP_ERROR, error);
+        receiveEvent(Events.EVENT_ERROR, event);
+    }
+
+    /**
+     * Plays the given sources one after the other instead of the src prop. The upcoming items are
+     * prepared on their own players, which take over the surface as soon as the current item ends.
+     */
+    public void setPlaylist(final List<VideoSource> playlist) {
+        mPendingPlaylist = playlist;
+    }
+
+    public void setPlaylistLookahead(final int lookahead) {
+        mPlaylist.setLookahead(lookahead);
+        if (mMediaPlayerValid && !mPlaylist.isEmpty()) {
+            mPlaylist.prepareUpcoming(mThemedReactContext);
+        }
+    }
+
+    private void loadSource() {
+        loadSource(VideoPreloader.getInstance().take(mSource));
+    }
 
-        mSrcUriString = uriString;
-        mSrcType = type;
-        mSrcIsNetwork = isNetwork;
-        mSrcIsAsset = isAsset;
+    /**
+     * Loads mSource, on the given player if it has been preloaded for it.
+     */
+    private void loadSource(final VideoPreloader.PreloadedPlayer preloaded) {
+        final VideoSource source = mSource;
 
         mMediaPlayerValid = false;
+        isCompleted = false;
+        mSourceFailed = false;
         mVideoDuration = 0;
-        mVideoBufferedDuration = 0;
+        mBufferedPercent = 0;
+        mBufferedRanges.reset();
+        mAppliedRate = 1.0f;
+        mLastKnownPosition = Math.max(0, mResumePosition);
+        mStalled = false;
+        resetSeekState();
+
+        cancelSourceResolution();
+
+        if (!DecoderGovernor.getInstance().acquire(this)) {
+            // restoreDecoder() loads the source once the governor grants this view a player.
+            if (preloaded != null) {
+                preloaded.release();
+            }
+            return;
+        }
+
+        if (preloaded != null) {
+            adoptPreloadedPlayer(preloaded);
+            return;
+        }
 
         initializeMediaPlayerIfNeeded();
+        updateProgressTicking();
         mMediaPlayer.reset();
+        closeSourceSession();
+
+        mSourceRequest = VideoSourceResolver.getInstance().resolve(mThemedReactContext, source,
+                new VideoSourceResolver.Callback() {
+                    @Override
+                    public void onResolved(ResolvedVideoSource resolvedSource) {
+                        mSourceRequest = null;
+                        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_SET_DATA_SOURCE);
+                        try {
+                            resolvedSource.setDataSource(mThemedReactContext, mMediaPlayer);
+                            mSourceSession = resolvedSource.takeSession();
+                        } catch (Exception e) {
+                            Log.w(ReactVideoViewManager.REACT_CLASS, "Failed to set the data source", e);
+                            onSourceFailed();
+                            return;
+                        } finally {
+                            resolvedSource.close();
+                            VideoTrace.endSection(VideoTrace.SECTION_SET_DATA_SOURCE, getId(), traceStart);
+                        }
+
+                        emitLoadStart();
+
+                        endPrepareTrace();
+                        mPrepareTraceStart = VideoTrace.beginAsyncSection(VideoTrace.SECTION_PREPARE,
+                                System.identityHashCode(ReactVideoView.this));
+                        prepareAsync(ReactVideoView.this);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        mSourceRequest = null;
+                        Log.w(ReactVideoViewManager.REACT_CLASS, "Failed to resolve the source", e);
+                        onSourceFailed();
+                    }
+                });
+    }
 
-        try {
-            if (isNetwork) {
-                // Use the shared CookieManager to access the cookies
-                // set by WebViews inside the same app
-                CookieManager cookieManager = CookieManager.getInstance();
+    private void endPrepareTrace() {
+        VideoTrace.endAsyncSection(VideoTrace.SECTION_PREPARE, System.identityHashCode(this), getId(),
+                mPrepareTraceStart);
+        mPrepareTraceStart = -1;
+    }
 
-                Uri parsedUrl = Uri.parse(uriString);
-                Uri.Builder builtUrl = parsedUrl.buildUpon();
+    /**
+     * Called when the source couldn't be set on the player. These failures aren't reported through
+     * onError, but are retried like player errors when there is a recovery policy.
+     */
+    private void onSourceFailed() {
+        mSourceFailed = true;
+        recover(mSource.isNetwork() ? RecoveryPolicy.CATEGORY_NETWORK : RecoveryPolicy.CATEGORY_SOURCE,
+                RECOVERY_REASON_ERROR, MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+    }
 
-                String cookie = cookieManager.getCookie(builtUrl.build().toString());
+    private void cancelSourceResolution() {
+        if (mSourceRequest != null) {
+            mSourceRequest.cancel();
+            mSourceRequest = null;
+        }
+    }
 
-                Map<String, String> headers = new HashMap<String, String>();
+    private void adoptPreloadedPlayer(final VideoPreloader.PreloadedPlayer preloaded) {
+        // The preloaded player takes over the slot acquired for this load.
+        teardownMediaPlayer(false);
+        mMediaPlayer = preloaded.adopt();
+        mSourceSession = preloaded.takeSession();
+        attachMediaPlayerListeners();
 
-                if (cookie != null) {
-                    headers.put("Cookie", cookie);
-                }
+        emitLoadStart();
 
-                setDataSource(mThemedReactContext, parsedUrl, headers);
-            } else if (isAsset) {
-                if (uriString.startsWith("content://")) {
-                    Uri parsedUrl = Uri.parse(uriString);
-                    setDataSource(mThemedReactContext, parsedUrl);
-                } else {
-                    setDataSource(uriString);
+        if (preloaded.isPrepared()) {
+            // Deliver onPrepared after the rest of this prop batch has been applied.
+            final MediaPlayer player = mMediaPlayer;
+            videoControlHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mMediaPlayer == player && !mMediaPlayerValid) {
+                        onPrepared(player);
+                    }
                 }
-            } else {
-                setRawData(mThemedReactContext.getResources().getIdentifier(
-                        uriString,
-                        "raw",
-                        mThemedReactContext.getPackageName()
-                ));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return;
+            });
         }
+    }
 
-        WritableMap src = Arguments.createMap();
-        src.putString(ReactVideoViewManager.PROP_SRC_URI, uriString);
-        src.putString(ReactVideoViewManager.PROP_SRC_TYPE, type);
-        src.putBoolean(ReactVideoViewManager.PROP_SRC_IS_NETWORK, isNetwork);
-        WritableMap event = Arguments.createMap();
-        event.putMap(ReactVideoViewManager.PROP_SRC, src);
-        mEventEmitter.receiveEvent(getId(), Events.EVENT_LOAD_START.toString(), event);
+    /**
+     * Switches to the next playlist item. If its player is already prepared it takes over the surface
+     * right away; the TextureView keeps showing the last frame of the previous item until then.
+     */
+    private void playNextItem() {
+        VideoPreloader.PreloadedPlayer next = mPlaylist.advance();
+        mSource = mPlaylist.getCurrent();
+        mResumePosition = -1;
+        cancelRecovery();
+        mPlaybackStats.finish();
+        emitPlaybackStats();
+        mPlaybackStats = new PlaybackStats();
+        emitPlaylistItemChange();
+
+        if (next != null && !next.isPrepared()) {
+            // Loading it from scratch is just as quick.
+            next.release();
+            next = null;
+        }
+        loadSource(next);
+    }
+
+    private void emitPlaylistItemChange() {
+        WritableMap event = VideoArguments.createMap();
+        event.putInt(EVENT_PROP_INDEX, mPlaylist.getIndex());
+        event.putMap(ReactVideoViewManager.PROP_SRC, mPlaylist.getCurrent().toWritableMap());
+        receiveEvent(Events.EVENT_PLAYLIST_ITEM_CHANGE, event);
+    }
 
-        prepareAsync(this);
+    private void emitLoadStart() {
+        WritableMap event = VideoArguments.createMap();
+        event.putMap(ReactVideoViewManager.PROP_SRC, mSource.toWritableMap());
+        receiveEvent(Events.EVENT_LOAD_START, event);
     }
 
     public void setResizeModeModifier(final ScalableType resizeMode) {
         mResizeMode = resizeMode;
+        mModifiersChanged = true;
+    }
 
-        if (mMediaPlayerValid) {
-            setScalableType(resizeMode);
-            invalidate();
+    public void setRepeatModifier(final boolean repeat) {
+        mRepeat = repeat;
+        mModifiersChanged = true;
+    }
+
+    public void setPausedModifier(final boolean paused) {
+        if (paused != mPaused) {
+            onInteraction();
         }
+        mPaused = paused;
+        mModifiersChanged = true;
     }
 
-    public void setRepeatModifier(final boolean repeat) {
+    public void setMutedModifier(final boolean muted) {
+        mMuted = muted;
+        mModifiersChanged = true;
+    }
 
-        mRepeat = repeat;
+    public void setVolumeModifier(final float volume) {
+        mVolume = volume;
+        mModifiersChanged = true;
+    }
 
-        if (mMediaPlayerValid) {
-            setLooping(repeat);
+    public void setRateModifier(final float rate) {
+        mRate = rate;
+        mModifiersChanged = true;
+    }
+
+    public void setSeekModifier(final int msec) {
+        mPendingSeek = msec;
+        onInteraction();
+    }
+
+    /**
+     * While scrubbing, seeks land on the nearest keyframe where the platform supports it. Once scrubbing
+     * ends, the last target is sought exactly.
+     */
+    public void setScrubbing(final boolean scrubbing) {
+        mScrubbing = scrubbing;
+        if (!scrubbing && !mSeekInFlight && !mSeekExact && mSeekTarget != -1) {
+            startSeek(mSeekTarget);
         }
     }
 
-    public void setPausedModifier(final boolean paused) {
+    /**
+     * Applies the props set during the last prop update batch in a single pass: the source first, and
+     * only if it actually changed, then the modifiers and finally any pending seek.
+     */
+    public void onPropsUpdated() {
+        if (mPendingPlaylist != null) {
+            List<VideoSource> playlist = mPendingPlaylist;
+            mPendingPlaylist = null;
+
+            if (mPlaylist.setItems(playlist)) {
+                mPendingSource = mPlaylist.isEmpty() ? mSrcPropSource : mPlaylist.getCurrent();
+                if (!mPlaylist.isEmpty()) {
+                    emitPlaylistItemChange();
+                }
+            }
+        }
 
-        mPaused = paused;
+        if (mPendingSource != null) {
+            VideoSource source = mPendingSource;
+            mPendingSource = null;
+
+            if (!source.equals(mSource) || mSourceFailed) {
+                mSource = source;
+                mResumePosition = -1;
+                cancelRecovery();
+                mPlaybackStats.finish();
+                mPlaybackStats = new PlaybackStats();
+                loadSource();
+            }
+        }
 
+        if (mModifiersChanged) {
+            mModifiersChanged = false;
+            applyModifiers();
+        }
+
+        if (mPendingSeek != -1) {
+            int msec = mPendingSeek;
+            mPendingSeek = -1;
+            seekTo(msec);
+        }
+    }
+
+    private void applyResizeModeModifier() {
+        if (mMediaPlayerValid) {
+            setScalableType(mResizeMode);
+            invalidate();
+        }
+    }
+
+    private void applyRepeatModifier() {
+        if (mMediaPlayerValid) {
+            setLooping(mRepeat);
+            if (mRepeat != mClockLooping) {
+                emitClock(VideoClock.REASON_REPEAT);
+            }
+        }
+    }
+
+    private void applyPausedModifier() {
         if (!mMediaPlayerValid) {
             return;
         }
 
-        if (mPaused) {
+        if (mPaused || mRate == 0.0f) {
             if (mMediaPlayer.isPlaying()) {
-                pause();
+                super.pause();
             }
         } else {
             if (!mMediaPlayer.isPlaying()) {
-                start();
+                super.start();
             }
+            applyRateModifier();
         }
+        updateProgressTicking();
     }
 
-    public void setMutedModifier(final boolean muted) {
-        mMuted = muted;
+    /**
+     * Called by the MediaController of the native controls. Playback started there counts as if the
+     * paused prop had been set to false, so progress, clock and rate follow it.
+     */
+    @Override
+    public void start() {
+        if (!mMediaPlayerValid) {
+            return;
+        }
+        onInteraction();
+        mPaused = false;
+        // Starting a completed video plays it again from the beginning.
+        isCompleted = false;
+        super.start();
+        applyRateModifier();
+        updateProgressTicking();
+    }
+
+    /**
+     * Called by the MediaController of the native controls, like {@link #start()}.
+     */
+    @Override
+    public void pause() {
+        if (!mMediaPlayerValid) {
+            return;
+        }
+        onInteraction();
+        mPaused = true;
+        super.pause();
+        updateProgressTicking();
+    }
 
+    private void applyMutedModifier() {
         if (!mMediaPlayerValid) {
             return;
         }
@@ -261,26 +929,60 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         }
     }
 
-    public void setVolumeModifier(final float volume) {
-        mVolume = volume;
-        setMutedModifier(mMuted);
+    /**
+     * Returns whether the player can change its speed. Older platforms have no time-stretching
+     * support in MediaPlayer, so they always play at 1x.
+     */
+    public static boolean supportsPlaybackRate() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
     }
 
-    public void setRateModifier(final float rate) {
-        mRate = rate;
+    /**
+     * Sets mRate on the player. Only done while playing, because setting a non-zero speed on a paused
+     * player starts it; applyPausedModifier calls this again after starting. A rate of 0 pauses instead.
+     */
+    private void applyRateModifier() {
+        if (!mMediaPlayerValid || mRate == 0.0f || mRate == mAppliedRate || !mMediaPlayer.isPlaying()) {
+            return;
+        }
 
-        if (mMediaPlayerValid) {
-            // TODO: Implement this.
-            Log.e(ReactVideoViewManager.REACT_CLASS, "Setting playback rate is not yet supported on Android");
+        if (!supportsPlaybackRate()) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Playback rate requires Android 6.0, playing at 1x");
+            return;
+        }
+
+        try {
+            PlaybackParams params = mMediaPlayer.getPlaybackParams();
+            mMediaPlayer.setPlaybackParams(params.allowDefaults().setSpeed(mRate).setPitch(1.0f));
+            mAppliedRate = mRate;
+        } catch (IllegalArgumentException e) {
+            Log.e(ReactVideoViewManager.REACT_CLASS, "Unsupported playback rate " + mRate, e);
+        } catch (IllegalStateException e) {
+            Log.e(ReactVideoViewManager.REACT_CLASS, "Could not set playback rate", e);
+        }
+    }
+
+    private void emitPlaybackRateIfChanged(final float rate) {
+        if (rate == mReportedRate) {
+            return;
         }
+        mReportedRate = rate;
+
+        WritableMap event = VideoArguments.createMap();
+        event.putDouble(EVENT_PROP_PLAYBACK_RATE, rate);
+        receiveEvent(Events.EVENT_PLAYBACK_RATE_CHANGE, event);
     }
 
     public void applyModifiers() {
-        setResizeModeModifier(mResizeMode);
-        setRepeatModifier(mRepeat);
-        setPausedModifier(mPaused);
-        setMutedModifier(mMuted);
-//        setRateModifier(mRate);
+        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_APPLY_MODIFIERS);
+        try {
+            applyResizeModeModifier();
+            applyRepeatModifier();
+            applyPausedModifier();
+            applyMutedModifier();
+        } finally {
+            VideoTrace.endSection(VideoTrace.SECTION_APPLY_MODIFIERS, getId(), traceStart);
+        }
     }
 
     public void setPlayInBackground(final boolean playInBackground) {
@@ -288,6 +990,49 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         mPlayInBackground = playInBackground;
     }
 
+    public void setProgressUpdateInterval(final float progressUpdateInterval) {
+        mProgressUpdateInterval = Math.max(0, Math.round(progressUpdateInterval));
+        ProgressTicker.getInstance().unschedule(this);
+        updateProgressTicking();
+    }
+
+    /**
+     * Keeps the SurfaceTexture of this view while it is detached, so that it shows its last frame
+     * right away when attached again instead of a black frame.
+     */
+    public void setRetainSurface(final boolean retainSurface) {
+        mRetainSurface = retainSurface;
+
+        if (!retainSurface) {
+            RetainedSurfaces.getInstance().release(this);
+        }
+    }
+
+    public void setRetainOnDetach(final boolean retainOnDetach) {
+        mRetainOnDetach = retainOnDetach;
+
+        if (!retainOnDetach && RetainedPlayers.getInstance().remove(this)) {
+            releasePlayerForRestore();
+        }
+    }
+
+    /**
+     * Sets how failures and stalls are recovered from, or null to report errors right away.
+     */
+    public void setRecoveryPolicy(final RecoveryPolicy recoveryPolicy) {
+        mRecoveryPolicy = recoveryPolicy;
+        mStallGivenUpPosition = -1;
+        if (recoveryPolicy == null) {
+            cancelRecovery();
+        }
+        ProgressTicker.getInstance().unschedule(this);
+        updateProgressTicking();
+    }
+
+    public void setStatsUpdateInterval(final float statsUpdateInterval) {
+        mStatsUpdateInterval = Math.max(0, Math.round(statsUpdateInterval));
+    }
+
     public void setControls(boolean controls) {
         this.mUseNativeControls = controls;
     }
@@ -296,10 +1041,18 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
     @Override
     public void onPrepared(MediaPlayer mp) {
 
+        endPrepareTrace();
         mMediaPlayerValid = true;
         mVideoDuration = mp.getDuration();
+        mPlaybackStats.onPrepared();
+
+        if (mResumePosition > 0) {
+            mResumeSeekInFlight = true;
+            mp.seekTo(mResumePosition);
+        }
+        mResumePosition = -1;
 
-        WritableMap naturalSize = Arguments.createMap();
+        WritableMap naturalSize = VideoArguments.createMap();
         naturalSize.putInt(EVENT_PROP_WIDTH, mp.getVideoWidth());
         naturalSize.putInt(EVENT_PROP_HEIGHT, mp.getVideoHeight());
         if (mp.getVideoWidth() > mp.getVideoHeight())
@@ -307,22 +1060,35 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
         else
             naturalSize.putString(EVENT_PROP_ORIENTATION, "portrait");
 
-        WritableMap event = Arguments.createMap();
+        WritableMap event = VideoArguments.createMap();
         event.putDouble(EVENT_PROP_DURATION, mVideoDuration / 1000.0);
         event.putDouble(EVENT_PROP_CURRENT_TIME, mp.getCurrentPosition() / 1000.0);
         event.putMap(EVENT_PROP_NATURALSIZE, naturalSize);
-        // TODO: Actually check if you can.
-        event.putBoolean(EVENT_PROP_FAST_FORWARD, true);
-        event.putBoolean(EVENT_PROP_SLOW_FORWARD, true);
-        event.putBoolean(EVENT_PROP_SLOW_REVERSE, true);
-        event.putBoolean(EVENT_PROP_REVERSE, true);
-        event.putBoolean(EVENT_PROP_FAST_FORWARD, true);
-        event.putBoolean(EVENT_PROP_STEP_BACKWARD, true);
-        event.putBoolean(EVENT_PROP_STEP_FORWARD, true);
-        mEventEmitter.receiveEvent(getId(), Events.EVENT_LOAD.toString(), event);
+        // MediaPlayer can change speed through PlaybackParams, but can't play backwards or step frames.
+        event.putBoolean(EVENT_PROP_FAST_FORWARD, supportsPlaybackRate());
+        event.putBoolean(EVENT_PROP_SLOW_FORWARD, supportsPlaybackRate());
+        event.putBoolean(EVENT_PROP_SLOW_REVERSE, false);
+        event.putBoolean(EVENT_PROP_REVERSE, false);
+        event.putBoolean(EVENT_PROP_STEP_BACKWARD, false);
+        event.putBoolean(EVENT_PROP_STEP_FORWARD, false);
+        receiveEvent(Events.EVENT_LOAD, event);
+        emitClock(VideoClock.REASON_LOAD);
+
+        if (mRecovering) {
+            mRecovering = false;
+            WritableMap recoveryEvent = VideoArguments.createMap();
+            recoveryEvent.putString(EVENT_PROP_TYPE, RECOVERY_RECOVERED);
+            recoveryEvent.putInt(EVENT_PROP_ATTEMPT, mRecoveryAttempts);
+            recoveryEvent.putDouble(EVENT_PROP_CURRENT_TIME, mRecoveryPosition / 1000.0);
+            receiveEvent(Events.EVENT_RECOVERY, recoveryEvent);
+        }
 
         applyModifiers();
 
+        if (!mPlaylist.isEmpty()) {
+            mPlaylist.prepareUpcoming(mThemedReactContext);
+        }
+
         if (mUseNativeControls) {
             initializeMediaControllerIfNeeded();
             mediaController.setMediaPlayer(this);
@@ -341,57 +1107,155 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
     @Override
     public boolean onError(MediaPlayer mp, int what, int extra) {
 
-        WritableMap error = Arguments.createMap();
-        error.putInt(EVENT_PROP_WHAT, what);
-        error.putInt(EVENT_PROP_EXTRA, extra);
-        WritableMap event = Arguments.createMap();
-        event.putMap(EVENT_PROP_ERROR, error);
-        mEventEmitter.receiveEvent(getId(), Events.EVENT_ERROR.toString(), event);
+        mPlaybackStats.onError();
+        mMediaPlayerValid = false;
+        mSourceFailed = true;
+        updateProgressTicking();
+
+        String category = RecoveryPolicy.classify(what, extra, mSource.isNetwork());
+        if (recover(category, RECOVERY_REASON_ERROR, what, extra)) {
+            return true;
+        }
+        emitError(what, extra, null);
         return true;
     }
 
     @Override
     public boolean onInfo(MediaPlayer mp, int what, int extra) {
-        switch (what) {
-            case MediaPlayer.MEDIA_INFO_BUFFERING_START:
-                mEventEmitter.receiveEvent(getId(), Events.EVENT_STALLED.toString(), Arguments.createMap());
-                break;
-            case MediaPlayer.MEDIA_INFO_BUFFERING_END:
-                mEventEmitter.receiveEvent(getId(), Events.EVENT_RESUME.toString(), Arguments.createMap());
-                break;
-            case MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START:
-                mEventEmitter.receiveEvent(getId(), Events.EVENT_READY_FOR_DISPLAY.toString(), Arguments.createMap());
-                break;
-
-            default:
+        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_INFO);
+        try {
+            switch (what) {
+                case MediaPlayer.MEDIA_INFO_BUFFERING_START:
+                    mPlaybackStats.onStallStart();
+                    mStalled = true;
+                    updateClock(VideoClock.REASON_STALL);
+                    receiveEvent(Events.EVENT_STALLED, VideoArguments.createMap());
+                    break;
+                case MediaPlayer.MEDIA_INFO_BUFFERING_END:
+                    mPlaybackStats.onStallEnd();
+                    mStalled = false;
+                    updateClock(VideoClock.REASON_RESUME);
+                    receiveEvent(Events.EVENT_RESUME, VideoArguments.createMap());
+                    break;
+                case MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START:
+                    mPlaybackStats.onFirstFrame();
+                    receiveEvent(Events.EVENT_READY_FOR_DISPLAY, VideoArguments.createMap());
+                    break;
+
+                default:
+            }
+            return false;
+        } finally {
+            VideoTrace.endSection(VideoTrace.SECTION_INFO, getId(), traceStart);
         }
-        return false;
     }
 
     @Override
     public void onBufferingUpdate(MediaPlayer mp, int percent) {
-        mVideoBufferedDuration = (int) Math.round((double) (mVideoDuration * percent) / 100.0);
+        mBufferedPercent = percent;
     }
 
     @Override
     public void seekTo(int msec) {
 
         if (mMediaPlayerValid) {
-            WritableMap event = Arguments.createMap();
-            event.putDouble(EVENT_PROP_CURRENT_TIME, getCurrentPosition() / 1000.0);
-            event.putDouble(EVENT_PROP_SEEK_TIME, msec / 1000.0);
-            mEventEmitter.receiveEvent(getId(), Events.EVENT_SEEK.toString(), event);
-
-            super.seekTo(msec);
             if (isCompleted && mVideoDuration != 0 && msec < mVideoDuration) {
                 isCompleted = false;
+                updateProgressTicking();
+            }
+
+            if (mSeekInFlight) {
+                mQueuedSeek = msec;
+            } else {
+                startSeek(msec);
+            }
+        }
+    }
+
+    private void startSeek(final int msec) {
+        mSeekInFlight = true;
+        mSeekTarget = msec;
+        mLastKnownPosition = msec;
+        mSeekExact = !mScrubbing || !seekToKeyframe(mMediaPlayer, msec);
+        mPlaybackStats.onSeekStart();
+        if (mSeekExact) {
+            super.seekTo(msec);
+        }
+    }
+
+    private void resetSeekState() {
+        mSeekInFlight = false;
+        mSeekTarget = -1;
+        mSeekExact = true;
+        mQueuedSeek = -1;
+        mResumeSeekInFlight = false;
+    }
+
+    @Override
+    public void onSeekComplete(MediaPlayer mp) {
+        mPlaybackStats.onSeekComplete();
+        if (mp != mMediaPlayer) {
+            return;
+        }
+        if (!mSeekInFlight) {
+            if (mResumeSeekInFlight) {
+                mResumeSeekInFlight = false;
+            } else if (mRepeat && mMediaPlayerValid) {
+                // Some players loop by seeking back to the start.
+                emitClock(VideoClock.REASON_LOOP);
+            }
+            return;
+        }
+        mSeekInFlight = false;
+
+        if (mQueuedSeek != -1) {
+            int msec = mQueuedSeek;
+            mQueuedSeek = -1;
+            startSeek(msec);
+            return;
+        }
+        if (!mSeekExact && !mScrubbing) {
+            // Scrubbing ended while a keyframe seek was in flight.
+            startSeek(mSeekTarget);
+            return;
+        }
+
+        WritableMap event = VideoArguments.createMap();
+        event.putDouble(EVENT_PROP_CURRENT_TIME, mp.getCurrentPosition() / 1000.0);
+        event.putDouble(EVENT_PROP_SEEK_TIME, mSeekTarget / 1000.0);
+        receiveEvent(Events.EVENT_SEEK, event);
+        emitClock(VideoClock.REASON_SEEK);
+    }
+
+    /**
+     * Seeks to the keyframe closest to msec, which is much cheaper than an exact seek since nothing
+     * needs to be decoded and dropped. Seek modes were added in Android 8.0 (API 26), newer than the
+     * SDK we compile against, so they are looked up by reflection. Returns false where unavailable.
+     */
+    private static boolean seekToKeyframe(final MediaPlayer player, final int msec) {
+        if (Build.VERSION.SDK_INT < 26) {
+            return false;
+        }
+        try {
+            if (sSeekToWithMode == null) {
+                sSeekToWithMode = MediaPlayer.class.getMethod("seekTo", long.class, int.class);
             }
+            sSeekToWithMode.invoke(player, (long) msec, SEEK_CLOSEST_SYNC);
+            return true;
+        } catch (Exception e) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Keyframe seeking unavailable", e);
+            return false;
         }
     }
 
     @Override
     public int getBufferPercentage() {
-        return 0;
+        if (!mMediaPlayerValid || mVideoDuration == 0) {
+            return 0;
+        }
+        double currentTime = mMediaPlayer.getCurrentPosition() / 1000.0;
+        mBufferedRanges.update(mSource, mVideoDuration, mBufferedPercent);
+        return (int) Math.round(mBufferedRanges.getBufferedEnd(currentTime) * 100000.0 / mVideoDuration);
     }
 
     @Override
@@ -417,22 +1281,88 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
     @Override
     public void onCompletion(MediaPlayer mp) {
 
+        if (mPlaylist.hasNext()) {
+            playNextItem();
+            return;
+        }
+
         isCompleted = true;
-        mEventEmitter.receiveEvent(getId(), Events.EVENT_END.toString(), null);
+        updateClock(VideoClock.REASON_END);
+        updateProgressTicking();
+        emitPlaybackStats();
+        receiveEvent(Events.EVENT_END, null);
     }
 
     @Override
     protected void onDetachedFromWindow() {
 
-        mMediaPlayerValid = false;
+        mAttachedToWindow = false;
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+
+        if (mRetainOnDetach && mMediaPlayerValid) {
+            // Keep the prepared player, paused, for a quick re-attach.
+            if (mMediaPlayer.isPlaying()) {
+                mMediaPlayer.pause();
+            }
+            updateProgressTicking();
+
+            MediaPlayer retainedPlayer = mMediaPlayer;
+            mMediaPlayer = null;
+            super.onDetachedFromWindow();
+            mMediaPlayer = retainedPlayer;
+
+            RetainedPlayers.getInstance().retain(this);
+            return;
+        }
+
+        // Hand the player back to the pool before ScalableVideoView gets a chance to release it.
+        releasePlayerForRestore();
+        DecoderGovernor.getInstance().unregister(this);
         super.onDetachedFromWindow();
     }
 
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        if (mRetainSurface && !mAttachedToWindow) {
+            RetainedSurfaces.getInstance().retain(this, surfaceTexture);
+            return false;
+        }
+        // Let the TextureView release it. Nothing else owns the texture.
+        return true;
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        DecoderGovernor.getInstance().scheduleRebalance();
+        restoreIfReleasedForMemory();
+    }
+
     @Override
     protected void onAttachedToWindow() {
 
         super.onAttachedToWindow();
-        setSrc(mSrcUriString, mSrcType, mSrcIsNetwork, mSrcIsAsset);
+        mAttachedToWindow = true;
+        mReleasedForMemory = false;
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+
+        SurfaceTexture retainedSurface = RetainedSurfaces.getInstance().remove(this);
+        if (retainedSurface != null) {
+            if (isAvailable()) {
+                retainedSurface.release();
+            } else {
+                // Used for the layer created on the next draw. onSurfaceTextureAvailable isn't called
+                // for it, so a retained player keeps the surface it has been rendering into.
+                setSurfaceTexture(retainedSurface);
+            }
+        }
+
+        if (RetainedPlayers.getInstance().remove(this)) {
+            // The surface is rebound in onSurfaceTextureAvailable, so only playback needs restoring.
+            applyModifiers();
+        } else if (mMediaPlayer == null && mSource.getUri() != null) {
+            loadSource();
+        }
     }
 
     @Override
@@ -440,14 +1370,31 @@ public class ReactVideoView extends ScalableVideoView implements MediaPlayer.OnP
 
         if (mMediaPlayer != null && !mPlayInBackground) {
             mMediaPlayer.pause();
+            updateProgressTicking();
         }
     }
 
     @Override
     public void onHostResume() {
+        if (mReleasedForMemory) {
+            // Let the host finish resuming first.
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    restoreIfReleasedForMemory();
+                }
+            });
+        }
     }
 
     @Override
     public void onHostDestroy() {
+        cancelRecovery();
+        RetainedPlayers.getInstance().remove(this);
+        releaseMediaPlayer();
+        mPlaylist.releaseUpcoming();
+        DecoderGovernor.getInstance().unregister(this);
+        VideoClock.remove(getId());
+        RetainedSurfaces.getInstance().release(this);
     }
 }
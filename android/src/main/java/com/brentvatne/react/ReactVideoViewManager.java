@@ -2,6 +2,7 @@ package com.brentvatne.react;
 
 import com.brentvatne.react.ReactVideoView.Events;
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.common.MapBuilder;
@@ -12,6 +13,8 @@ import com.facebook.react.uimanager.events.RCTEventEmitter;
 import com.yqritc.scalablevideoview.ScalableType;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
@@ -23,15 +26,27 @@ public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
     public static final String PROP_SRC_TYPE = "type";
     public static final String PROP_SRC_IS_NETWORK = "isNetwork";
     public static final String PROP_SRC_IS_ASSET = "isAsset";
+    public static final String PROP_SRC_CACHE = "cache";
+    public static final String PROP_SRC_OFFSET = "offset";
+    public static final String PROP_SRC_LENGTH = "length";
+    public static final String PROP_SRC_HEADERS = "headers";
+    public static final String PROP_PLAYLIST = "playlist";
+    public static final String PROP_PLAYLIST_LOOKAHEAD = "playlistLookahead";
     public static final String PROP_RESIZE_MODE = "resizeMode";
     public static final String PROP_REPEAT = "repeat";
     public static final String PROP_PAUSED = "paused";
     public static final String PROP_MUTED = "muted";
     public static final String PROP_VOLUME = "volume";
     public static final String PROP_SEEK = "seek";
+    public static final String PROP_SCRUBBING = "scrubbing";
     public static final String PROP_RATE = "rate";
     public static final String PROP_PLAY_IN_BACKGROUND = "playInBackground";
     public static final String PROP_CONTROLS = "controls";
+    public static final String PROP_PROGRESS_UPDATE_INTERVAL = "progressUpdateInterval";
+    public static final String PROP_RETAIN_ON_DETACH = "retainOnDetach";
+    public static final String PROP_RETAIN_SURFACE = "retainSurface";
+    public static final String PROP_STATS_UPDATE_INTERVAL = "statsUpdateInterval";
+    public static final String PROP_RECOVERY_POLICY = "recoveryPolicy";
 
     @Override
     public String getName() {
@@ -43,6 +58,18 @@ public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
         return new ReactVideoView(themedReactContext);
     }
 
+    @Override
+    public void onDropViewInstance(ReactVideoView view) {
+        super.onDropViewInstance(view);
+        view.cleanupMediaPlayerResources();
+    }
+
+    @Override
+    protected void onAfterUpdateTransaction(ReactVideoView view) {
+        super.onAfterUpdateTransaction(view);
+        view.onPropsUpdated();
+    }
+
     @Override
     @Nullable
     public Map getExportedCustomDirectEventTypeConstants() {
@@ -66,12 +93,38 @@ public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
 
     @ReactProp(name = PROP_SRC)
     public void setSrc(final ReactVideoView videoView, @Nullable ReadableMap src) {
-        videoView.setSrc(
-                src.getString(PROP_SRC_URI),
-                src.getString(PROP_SRC_TYPE),
-                src.getBoolean(PROP_SRC_IS_NETWORK),
-                src.getBoolean(PROP_SRC_IS_ASSET)
-        );
+        long start = System.nanoTime();
+        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_SET_SRC);
+        try {
+            videoView.setSrc(VideoSource.fromReadableMap(src));
+        } catch (IllegalArgumentException e) {
+            videoView.onInvalidSource(e);
+        } finally {
+            VideoTrace.endSection(VideoTrace.SECTION_SET_SRC, videoView.getId(), traceStart);
+            VideoCounters.onSetSrc(start);
+        }
+    }
+
+    @ReactProp(name = PROP_PLAYLIST)
+    public void setPlaylist(final ReactVideoView videoView, @Nullable ReadableArray playlist) {
+        List<VideoSource> sources = new ArrayList<VideoSource>();
+        if (playlist != null) {
+            try {
+                for (int i = 0; i < playlist.size(); i++) {
+                    sources.add(VideoSource.fromReadableMap(playlist.getMap(i)));
+                }
+            } catch (IllegalArgumentException e) {
+                // Dropping just the bad item would shift the indices the playlist events report.
+                videoView.onInvalidSource(e);
+                return;
+            }
+        }
+        videoView.setPlaylist(sources);
+    }
+
+    @ReactProp(name = PROP_PLAYLIST_LOOKAHEAD, defaultInt = PlaylistQueue.DEFAULT_LOOKAHEAD)
+    public void setPlaylistLookahead(final ReactVideoView videoView, final int lookahead) {
+        videoView.setPlaylistLookahead(lookahead);
     }
 
     @ReactProp(name = PROP_RESIZE_MODE)
@@ -101,10 +154,15 @@ public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
 
     @ReactProp(name = PROP_SEEK)
     public void setSeek(final ReactVideoView videoView, final float seek) {
-        videoView.seekTo(Math.round(seek * 1000.0f));
+        videoView.setSeekModifier(Math.round(seek * 1000.0f));
     }
 
-    @ReactProp(name = PROP_RATE)
+    @ReactProp(name = PROP_SCRUBBING, defaultBoolean = false)
+    public void setScrubbing(final ReactVideoView videoView, final boolean scrubbing) {
+        videoView.setScrubbing(scrubbing);
+    }
+
+    @ReactProp(name = PROP_RATE, defaultFloat = 1.0f)
     public void setRate(final ReactVideoView videoView, final float rate) {
         videoView.setRateModifier(rate);
     }
@@ -114,6 +172,31 @@ public class ReactVideoViewManager extends SimpleViewManager<ReactVideoView> {
         videoView.setPlayInBackground(playInBackground);
     }
 
+    @ReactProp(name = PROP_PROGRESS_UPDATE_INTERVAL, defaultFloat = 250.0f)
+    public void setProgressUpdateInterval(final ReactVideoView videoView, final float progressUpdateInterval) {
+        videoView.setProgressUpdateInterval(progressUpdateInterval);
+    }
+
+    @ReactProp(name = PROP_STATS_UPDATE_INTERVAL, defaultFloat = 0.0f)
+    public void setStatsUpdateInterval(final ReactVideoView videoView, final float statsUpdateInterval) {
+        videoView.setStatsUpdateInterval(statsUpdateInterval);
+    }
+
+    @ReactProp(name = PROP_RECOVERY_POLICY)
+    public void setRecoveryPolicy(final ReactVideoView videoView, @Nullable ReadableMap recoveryPolicy) {
+        videoView.setRecoveryPolicy(recoveryPolicy == null ? null : RecoveryPolicy.fromReadableMap(recoveryPolicy));
+    }
+
+    @ReactProp(name = PROP_RETAIN_ON_DETACH, defaultBoolean = false)
+    public void setRetainOnDetach(final ReactVideoView videoView, final boolean retainOnDetach) {
+        videoView.setRetainOnDetach(retainOnDetach);
+    }
+
+    @ReactProp(name = PROP_RETAIN_SURFACE, defaultBoolean = false)
+    public void setRetainSurface(final ReactVideoView videoView, final boolean retainSurface) {
+        videoView.setRetainSurface(retainSurface);
+    }
+
     @ReactProp(name = PROP_CONTROLS, defaultBoolean = false)
     public void setControls(final ReactVideoView videoView, final boolean controls) {
         videoView.setControls(controls);
@@ -0,0 +1,113 @@
+package com.brentvatne.react;
+
+import android.media.MediaPlayer;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Immutable settings for how a {@link ReactVideoView} recovers from playback failures, as passed in
+ * the recoveryPolicy prop. Failures that are likely transient are retried with exponential backoff by
+ * loading the source again from the last known position; a stall watchdog treats playback that makes
+ * no progress for stallTimeout ms as such a failure too.
+ */
+public class RecoveryPolicy {
+
+    public static final String PROP_MAX_RETRIES = "maxRetries";
+    public static final String PROP_RETRY_DELAY = "retryDelay";
+    public static final String PROP_MAX_RETRY_DELAY = "maxRetryDelay";
+    public static final String PROP_STALL_TIMEOUT = "stallTimeout";
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_RETRY_DELAY_MS = 1000;
+    public static final int DEFAULT_MAX_RETRY_DELAY_MS = 16000;
+    public static final int DEFAULT_STALL_TIMEOUT_MS = 15000;
+
+    public static final String CATEGORY_NETWORK = "network";
+    public static final String CATEGORY_PLAYER = "player";
+    public static final String CATEGORY_SOURCE = "source";
+    public static final String CATEGORY_STALL = "stall";
+    public static final String CATEGORY_UNKNOWN = "unknown";
+
+    // Not part of the public API, but reported by the platform's HTTP data sources.
+    private static final int ERROR_CANNOT_CONNECT = -1003;
+    private static final int ERROR_CONNECTION_LOST = -1005;
+    private static final int MEDIA_ERROR_NOT_VALID_FOR_PROGRESSIVE_PLAYBACK = 200;
+
+    private final int mMaxRetries;
+    private final int mRetryDelay;
+    private final int mMaxRetryDelay;
+    private final int mStallTimeout;
+
+    public RecoveryPolicy(final int maxRetries, final int retryDelay, final int maxRetryDelay,
+                          final int stallTimeout) {
+        mMaxRetries = Math.max(0, maxRetries);
+        mRetryDelay = Math.max(0, retryDelay);
+        mMaxRetryDelay = Math.max(mRetryDelay, maxRetryDelay);
+        mStallTimeout = Math.max(0, stallTimeout);
+    }
+
+    public static RecoveryPolicy fromReadableMap(final ReadableMap policy) {
+        return new RecoveryPolicy(
+                policy.hasKey(PROP_MAX_RETRIES) ? policy.getInt(PROP_MAX_RETRIES) : DEFAULT_MAX_RETRIES,
+                policy.hasKey(PROP_RETRY_DELAY) ? policy.getInt(PROP_RETRY_DELAY) : DEFAULT_RETRY_DELAY_MS,
+                policy.hasKey(PROP_MAX_RETRY_DELAY) ? policy.getInt(PROP_MAX_RETRY_DELAY) : DEFAULT_MAX_RETRY_DELAY_MS,
+                policy.hasKey(PROP_STALL_TIMEOUT) ? policy.getInt(PROP_STALL_TIMEOUT) : DEFAULT_STALL_TIMEOUT_MS
+        );
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    /**
+     * Returns how long to wait before the given retry, counting from 1: retryDelay, doubled for every
+     * further retry, up to maxRetryDelay.
+     */
+    public long getRetryDelay(final int attempt) {
+        long delay = mRetryDelay;
+        for (int i = 1; i < attempt && delay < mMaxRetryDelay; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, mMaxRetryDelay);
+    }
+
+    /**
+     * Returns the time without progress after which playback counts as stalled, or 0 if stalls are
+     * not watched for.
+     */
+    public int getStallTimeout() {
+        return mStallTimeout;
+    }
+
+    /**
+     * Classifies the what and extra codes of a MediaPlayer error into one of the CATEGORY_ constants.
+     */
+    public static String classify(final int what, final int extra, final boolean isNetwork) {
+        if (what == MediaPlayer.MEDIA_ERROR_SERVER_DIED) {
+            return CATEGORY_PLAYER;
+        }
+        if (what == MEDIA_ERROR_NOT_VALID_FOR_PROGRESSIVE_PLAYBACK) {
+            return CATEGORY_SOURCE;
+        }
+        switch (extra) {
+            case MediaPlayer.MEDIA_ERROR_IO:
+            case MediaPlayer.MEDIA_ERROR_TIMED_OUT:
+            case ERROR_CANNOT_CONNECT:
+            case ERROR_CONNECTION_LOST:
+                return CATEGORY_NETWORK;
+            case MediaPlayer.MEDIA_ERROR_MALFORMED:
+            case MediaPlayer.MEDIA_ERROR_UNSUPPORTED:
+                return CATEGORY_SOURCE;
+            default:
+                // Network sources mostly fail with unspecific codes when the connection drops.
+                return isNetwork ? CATEGORY_NETWORK : CATEGORY_UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns whether failures of the given category may go away by loading the source again.
+     */
+    public static boolean isRetryable(final String category) {
+        return !CATEGORY_SOURCE.equals(category) && !CATEGORY_UNKNOWN.equals(category);
+    }
+}
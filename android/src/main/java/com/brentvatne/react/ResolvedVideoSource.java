@@ -0,0 +1,115 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaPlayer;
+import android.net.Uri;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A {@link VideoSource} whose cookies, resource ids and file descriptors have been looked up, so that
+ * setting it as the data source of a player doesn't block. Must be closed once it has been set.
+ *
+ * Sources served by a {@link VideoCacheProxy.Session} carry its handle, which the player's owner takes
+ * over with {@link #takeSession()} and closes once the player is reset or released.
+ */
+public class ResolvedVideoSource implements Closeable {
+
+    // What MediaPlayer#setDataSource(FileDescriptor) passes itself.
+    private static final long UNKNOWN_LENGTH = 0x7ffffffffffffffL;
+
+    private final Uri mUri;
+    private final Map<String, String> mHeaders;
+    private final String mPath;
+    private final AssetFileDescriptor mFileDescriptor;
+    private VideoCacheProxy.SessionHandle mSession;
+
+    private ResolvedVideoSource(final Uri uri, final Map<String, String> headers, final String path,
+                                final AssetFileDescriptor fileDescriptor, final VideoCacheProxy.SessionHandle session) {
+        mUri = uri;
+        mHeaders = headers;
+        mPath = path;
+        mFileDescriptor = fileDescriptor;
+        mSession = session;
+    }
+
+    public static ResolvedVideoSource forUri(final Uri uri, final Map<String, String> headers) {
+        return new ResolvedVideoSource(uri, headers, null, null, null);
+    }
+
+    public static ResolvedVideoSource forSession(final VideoCacheProxy.SessionHandle session,
+                                                 final Map<String, String> headers) {
+        return new ResolvedVideoSource(Uri.parse(session.getUrl()), headers, null, null, session);
+    }
+
+    public static ResolvedVideoSource forPath(final String path) {
+        return new ResolvedVideoSource(null, null, path, null, null);
+    }
+
+    public static ResolvedVideoSource forFileDescriptor(final AssetFileDescriptor fileDescriptor) {
+        return new ResolvedVideoSource(null, null, null, fileDescriptor, null);
+    }
+
+    /**
+     * Returns the proxy session serving this source, or null if there is none, and leaves closing it
+     * to the caller. Otherwise it is closed along with this source.
+     */
+    public VideoCacheProxy.SessionHandle takeSession() {
+        VideoCacheProxy.SessionHandle session = mSession;
+        mSession = null;
+        return session;
+    }
+
+    public void setDataSource(final Context context, final MediaPlayer player) throws IOException {
+        if (mFileDescriptor != null) {
+            player.setDataSource(mFileDescriptor.getFileDescriptor(), mFileDescriptor.getStartOffset(),
+                    getLength());
+        } else if (mPath != null) {
+            player.setDataSource(mPath);
+        } else if (mHeaders != null) {
+            player.setDataSource(context, mUri, mHeaders);
+        } else {
+            player.setDataSource(context, mUri);
+        }
+    }
+
+    public void setDataSource(final Context context, final MediaMetadataRetriever retriever) {
+        if (mFileDescriptor != null) {
+            retriever.setDataSource(mFileDescriptor.getFileDescriptor(), mFileDescriptor.getStartOffset(),
+                    getLength());
+        } else if (mPath != null) {
+            retriever.setDataSource(mPath);
+        } else if (mHeaders != null) {
+            retriever.setDataSource(mUri.toString(), mHeaders);
+        } else {
+            retriever.setDataSource(context, mUri);
+        }
+    }
+
+    /**
+     * Returns the length to pass along with the start offset of the descriptor. Players clamp it to the
+     * end of the file, so an unknown length plays everything after the offset.
+     */
+    private long getLength() {
+        return mFileDescriptor.getDeclaredLength() < 0 ? UNKNOWN_LENGTH : mFileDescriptor.getLength();
+    }
+
+    @Override
+    public void close() {
+        if (mSession != null) {
+            mSession.close();
+            mSession = null;
+        }
+        if (mFileDescriptor != null) {
+            try {
+                mFileDescriptor.close();
+            } catch (IOException e) {
+                // Ignore, the player holds its own duplicate of the descriptor.
+            }
+        }
+    }
+}
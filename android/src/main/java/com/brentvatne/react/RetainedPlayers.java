@@ -0,0 +1,60 @@
+package com.brentvatne.react;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Bounds how many detached {@link ReactVideoView}s may keep their prepared player so they can resume
+ * instantly when re-attached. Once the budget is exceeded, the view that was detached the longest
+ * releases its player and re-prepares from its saved position on its next attach.
+ *
+ * Must only be used from the UI thread.
+ */
+public class RetainedPlayers {
+
+    public static final int DEFAULT_MAX_RETAINED = 2;
+
+    private static RetainedPlayers sInstance;
+
+    // Least recently detached first.
+    private final LinkedHashSet<ReactVideoView> mViews = new LinkedHashSet<ReactVideoView>();
+    private int mMaxRetained = DEFAULT_MAX_RETAINED;
+
+    public static RetainedPlayers getInstance() {
+        if (sInstance == null) {
+            sInstance = new RetainedPlayers();
+        }
+        return sInstance;
+    }
+
+    public void retain(final ReactVideoView view) {
+        mViews.remove(view);
+        mViews.add(view);
+        trimToSize(mMaxRetained);
+    }
+
+    /**
+     * Stops tracking a view, returning whether it was still holding a retained player.
+     */
+    public boolean remove(final ReactVideoView view) {
+        return mViews.remove(view);
+    }
+
+    public void setMaxRetained(final int maxRetained) {
+        mMaxRetained = Math.max(0, maxRetained);
+        trimToSize(mMaxRetained);
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(final int maxSize) {
+        Iterator<ReactVideoView> iterator = mViews.iterator();
+        while (mViews.size() > maxSize && iterator.hasNext()) {
+            ReactVideoView view = iterator.next();
+            iterator.remove();
+            view.releasePlayerForRestore();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.brentvatne.react;
+
+import android.graphics.SurfaceTexture;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounds how many detached {@link ReactVideoView}s may keep their SurfaceTexture. A view that gets its
+ * texture back when it is attached again still shows its last frame, and a player that kept rendering
+ * into the texture doesn't need a new surface. Once the budget is exceeded, the texture of the view
+ * that was detached the longest is released, and that view starts out blank on its next attach.
+ *
+ * Must only be used from the UI thread.
+ */
+public class RetainedSurfaces {
+
+    public static final int DEFAULT_MAX_RETAINED = 2;
+
+    private static RetainedSurfaces sInstance;
+
+    // Least recently detached first.
+    private final LinkedHashMap<ReactVideoView, SurfaceTexture> mSurfaces =
+            new LinkedHashMap<ReactVideoView, SurfaceTexture>();
+    private int mMaxRetained = DEFAULT_MAX_RETAINED;
+
+    public static RetainedSurfaces getInstance() {
+        if (sInstance == null) {
+            sInstance = new RetainedSurfaces();
+        }
+        return sInstance;
+    }
+
+    public void retain(final ReactVideoView view, final SurfaceTexture surfaceTexture) {
+        SurfaceTexture previous = mSurfaces.remove(view);
+        if (previous != null && previous != surfaceTexture) {
+            previous.release();
+        }
+        mSurfaces.put(view, surfaceTexture);
+        trimToSize(mMaxRetained);
+    }
+
+    /**
+     * Stops tracking a view, returning its retained texture, which the caller now owns, or null.
+     */
+    public SurfaceTexture remove(final ReactVideoView view) {
+        return mSurfaces.remove(view);
+    }
+
+    /**
+     * Stops tracking a view and releases its retained texture, if any.
+     */
+    public void release(final ReactVideoView view) {
+        SurfaceTexture surfaceTexture = mSurfaces.remove(view);
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+        }
+    }
+
+    public void setMaxRetained(final int maxRetained) {
+        mMaxRetained = Math.max(0, maxRetained);
+        trimToSize(mMaxRetained);
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(final int maxSize) {
+        Iterator<Map.Entry<ReactVideoView, SurfaceTexture>> iterator = mSurfaces.entrySet().iterator();
+        while (mSurfaces.size() > maxSize && iterator.hasNext()) {
+            SurfaceTexture surfaceTexture = iterator.next().getValue();
+            iterator.remove();
+            surfaceTexture.release();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Creates the maps and arrays this library sends to JS. The bridge's own implementations need its
+ * native library, so tests on the JVM install a {@link Factory} of plain Java ones instead.
+ */
+/* package */ class VideoArguments {
+
+    /* package */ interface Factory {
+        WritableMap createMap();
+
+        WritableArray createArray();
+    }
+
+    private static volatile Factory sFactory = null;
+
+    /**
+     * Replaces the bridge's maps and arrays, or restores them when factory is null.
+     */
+    /* package */ static void setFactory(final Factory factory) {
+        sFactory = factory;
+    }
+
+    public static WritableMap createMap() {
+        Factory factory = sFactory;
+        return factory == null ? Arguments.createMap() : factory.createMap();
+    }
+
+    public static WritableArray createArray() {
+        Factory factory = sFactory;
+        return factory == null ? Arguments.createArray() : factory.createArray();
+    }
+}
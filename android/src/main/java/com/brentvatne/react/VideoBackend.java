@@ -0,0 +1,24 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+
+import java.io.IOException;
+
+/**
+ * Decides how a {@link VideoSource} is delivered to the MediaPlayer of a {@link ReactVideoView}. The
+ * backend for a source is picked by {@link VideoBackends#forSource(VideoSource)}, usually based on its
+ * type.
+ */
+public interface VideoBackend {
+
+    /**
+     * Returns whether this backend can play the given source.
+     */
+    boolean canPlay(VideoSource source);
+
+    /**
+     * Prepares the source for a player. Called on a background thread, so this may block on the
+     * network or on storage.
+     */
+    ResolvedVideoSource resolve(Context context, VideoSource source) throws IOException;
+}
@@ -0,0 +1,52 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of {@link VideoBackend}s. Backends are asked in order of registration, most recent first,
+ * and sources no backend claims are set on the player directly.
+ */
+public class VideoBackends {
+
+    private static final VideoBackend DEFAULT_BACKEND = new VideoBackend() {
+        @Override
+        public boolean canPlay(VideoSource source) {
+            return true;
+        }
+
+        @Override
+        public ResolvedVideoSource resolve(Context context, VideoSource source) throws IOException {
+            return source.resolve(context);
+        }
+    };
+
+    private static final List<VideoBackend> sBackends = new ArrayList<VideoBackend>();
+
+    static {
+        sBackends.add(new HlsAdaptiveBackend());
+    }
+
+    /**
+     * Registers a backend that takes precedence over the ones registered before it.
+     */
+    public static synchronized void register(final VideoBackend backend) {
+        sBackends.add(0, backend);
+    }
+
+    public static synchronized void unregister(final VideoBackend backend) {
+        sBackends.remove(backend);
+    }
+
+    public static synchronized VideoBackend forSource(final VideoSource source) {
+        for (VideoBackend backend : sBackends) {
+            if (backend.canPlay(source)) {
+                return backend;
+            }
+        }
+        return DEFAULT_BACKEND;
+    }
+}
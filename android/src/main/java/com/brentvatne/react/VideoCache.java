@@ -0,0 +1,377 @@
+package com.brentvatne.react;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size-bounded on-disk cache of fixed size byte segments of network sources, used by
+ * {@link VideoCacheProxy}. Each source has its own directory, named after its key, holding one file
+ * per cached segment plus the source's length and content type. Segments are evicted least recently
+ * used first once the cache grows past its maximum size, which is kept across restarts once set.
+ *
+ * Writes are serialized and may block on the file system, but {@link #getCachedRanges} and
+ * {@link #getMetadata} only read immutable snapshots, so the UI thread can call them while a proxy
+ * thread is writing a segment.
+ */
+public class VideoCache {
+
+    public static final int SEGMENT_SIZE = 512 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String METADATA_FILE = "meta";
+    private static final String MAX_BYTES_FILE = "max_bytes";
+
+    private final File mDirectory;
+    private long mMaxBytes;
+    private long mSize = 0;
+    // Cached segment files and their sizes, least recently used first.
+    private final LinkedHashMap<File, Long> mSegments = new LinkedHashMap<File, Long>(16, 0.75f, true);
+    // Indices of the cached segments of each source, kept in step with mSegments. The sets are
+    // replaced rather than modified, so readers never see one change.
+    private final Map<String, BitSet> mSegmentIndices = new ConcurrentHashMap<String, BitSet>();
+    // Loaded for every cached source when the cache is opened.
+    private final Map<String, Metadata> mMetadata = new ConcurrentHashMap<String, Metadata>();
+
+    /**
+     * Opens the cache in the given directory, limited to maxBytes unless another limit has been set
+     * with {@link #setMaxBytes(long)} before.
+     */
+    public VideoCache(final File directory, final long maxBytes) {
+        mDirectory = directory;
+        mDirectory.mkdirs();
+        mMaxBytes = readMaxBytes(maxBytes);
+        index();
+    }
+
+    /**
+     * Returns the cache key of a source url.
+     */
+    public static String keyFor(final String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached file of a segment, or null if it is not cached.
+     */
+    public synchronized File getSegment(final String key, final int index) {
+        File file = segmentFile(key, index);
+        if (mSegments.get(file) == null) {
+            return null;
+        }
+        // Persist the access order across restarts.
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized boolean hasSegment(final String key, final int index) {
+        return mSegments.containsKey(segmentFile(key, index));
+    }
+
+    /**
+     * Returns a new temporary file that a segment of the given source can be written to before being
+     * committed with {@link #putSegment}.
+     */
+    public File createTempFile(final String key) throws IOException {
+        File directory = new File(mDirectory, key);
+        directory.mkdirs();
+        return File.createTempFile("segment", ".tmp", directory);
+    }
+
+    public synchronized void putSegment(final String key, final int index, final File tempFile) {
+        File file = segmentFile(key, index);
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+        long length = file.length();
+        Long previousLength = mSegments.put(file, length);
+        mSize += length - (previousLength == null ? 0 : previousLength);
+        setSegmentCached(file, true);
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * Writes the byte ranges of a source that are cached into ranges, as consecutive start (inclusive)
+     * and end (exclusive) offsets, and returns the number of offsets written. Returns -1 if the length
+     * of the source isn't known yet. Only walks the runs of cached segments, so it is cheap enough to
+     * call on every progress tick.
+     */
+    public int getCachedRanges(final String key, final long[] ranges) {
+        Metadata metadata = getMetadata(key);
+        if (metadata == null) {
+            return -1;
+        }
+        BitSet segments = mSegmentIndices.get(key);
+        if (segments == null) {
+            return 0;
+        }
+
+        int count = 0;
+        int start = segments.nextSetBit(0);
+        while (start >= 0 && count + 1 < ranges.length) {
+            int end = segments.nextClearBit(start);
+            ranges[count++] = (long) start * SEGMENT_SIZE;
+            ranges[count++] = Math.min((long) end * SEGMENT_SIZE, metadata.getLength());
+            start = segments.nextSetBit(end);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the metadata of a source, or null if it has not been fetched yet.
+     */
+    public Metadata getMetadata(final String key) {
+        return mMetadata.get(key);
+    }
+
+    public synchronized void putMetadata(final String key, final Metadata metadata) throws IOException {
+        File directory = new File(mDirectory, key);
+        directory.mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, METADATA_FILE)), "UTF-8");
+        try {
+            writer.write(Long.toString(metadata.getLength()));
+            writer.write('\n');
+            writer.write(metadata.getContentType() == null ? "" : metadata.getContentType());
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+        mMetadata.put(key, metadata);
+    }
+
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * Changes the maximum size of the cache, evicting segments right away if it is now too large. The
+     * limit is written to the cache directory, so it also applies after the app restarts.
+     */
+    public synchronized void setMaxBytes(final long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize(mMaxBytes);
+        try {
+            writeMaxBytes(maxBytes);
+        } catch (IOException e) {
+            // Only applies until the app restarts then.
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+        mMetadata.clear();
+        File[] directories = mDirectory.listFiles();
+        if (directories != null) {
+            for (File directory : directories) {
+                if (!directory.getName().equals(MAX_BYTES_FILE)) {
+                    deleteRecursively(directory);
+                }
+            }
+        }
+    }
+
+    private long readMaxBytes(final long defaultMaxBytes) {
+        File file = new File(mDirectory, MAX_BYTES_FILE);
+        if (!file.exists()) {
+            return defaultMaxBytes;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            return Long.parseLong(reader.readLine());
+        } catch (Exception e) {
+            file.delete();
+            return defaultMaxBytes;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void writeMaxBytes(final long maxBytes) throws IOException {
+        // Replaced in one step, so a crash mid-write doesn't lose the previous limit.
+        File tempFile = new File(mDirectory, MAX_BYTES_FILE + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+        try {
+            writer.write(Long.toString(maxBytes));
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+        if (!tempFile.renameTo(new File(mDirectory, MAX_BYTES_FILE))) {
+            tempFile.delete();
+            throw new IOException("Unable to save the maximum cache size");
+        }
+    }
+
+    private File segmentFile(final String key, final int index) {
+        return new File(new File(mDirectory, key), index + SEGMENT_SUFFIX);
+    }
+
+    private void trimToSize(final long maxBytes) {
+        Iterator<Map.Entry<File, Long>> iterator = mSegments.entrySet().iterator();
+        while (mSize > maxBytes && iterator.hasNext()) {
+            Map.Entry<File, Long> entry = iterator.next();
+            iterator.remove();
+            entry.getKey().delete();
+            mSize -= entry.getValue();
+            setSegmentCached(entry.getKey(), false);
+        }
+    }
+
+    private void setSegmentCached(final File file, final boolean cached) {
+        String key = file.getParentFile().getName();
+        String name = file.getName();
+        int index;
+        try {
+            index = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        BitSet previous = mSegmentIndices.get(key);
+        if (cached) {
+            BitSet segments = previous == null ? new BitSet() : (BitSet) previous.clone();
+            segments.set(index);
+            mSegmentIndices.put(key, segments);
+        } else if (previous != null) {
+            BitSet segments = (BitSet) previous.clone();
+            segments.clear(index);
+            if (segments.isEmpty()) {
+                mSegmentIndices.remove(key);
+            } else {
+                mSegmentIndices.put(key, segments);
+            }
+        }
+    }
+
+    private Metadata readMetadata(final File file) {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            long length = Long.parseLong(reader.readLine());
+            String contentType = reader.readLine();
+            return new Metadata(length, contentType);
+        } catch (Exception e) {
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void index() {
+        List<File> segments = new ArrayList<File>();
+        File[] directories = mDirectory.listFiles();
+        if (directories != null) {
+            for (File directory : directories) {
+                File[] files = directory.listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.getName().endsWith(SEGMENT_SUFFIX)) {
+                        segments.add(file);
+                    } else if (file.getName().equals(METADATA_FILE)) {
+                        Metadata metadata = readMetadata(file);
+                        if (metadata != null) {
+                            mMetadata.put(directory.getName(), metadata);
+                        }
+                    } else {
+                        // Leftover from an interrupted segment fetch.
+                        file.delete();
+                    }
+                }
+            }
+        }
+
+        Collections.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (File segment : segments) {
+            long length = segment.length();
+            mSegments.put(segment, length);
+            mSize += length;
+            setSegmentCached(segment, true);
+        }
+        trimToSize(mMaxBytes);
+    }
+
+    private static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    public static class Metadata {
+
+        private final long mLength;
+        private final String mContentType;
+
+        public Metadata(final long length, final String contentType) {
+            mLength = length;
+            mContentType = contentType;
+        }
+
+        public long getLength() {
+            return mLength;
+        }
+
+        public String getContentType() {
+            return mContentType;
+        }
+    }
+}
@@ -0,0 +1,749 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Loopback HTTP server that sits between a MediaPlayer and the origin of a network source. Range
+ * requests are answered from a {@link VideoCache}; segments that are not cached yet are fetched from
+ * the origin and written to the cache while they are being streamed to the player. Request headers
+ * such as Cookie are forwarded to the origin.
+ *
+ * {@link VideoBackend}s can also register a {@link Session} to serve generated content, such as the
+ * playlist of {@link HlsAdaptiveBackend}, from the same server.
+ *
+ * Other apps can connect to the loopback port too, so every url handed out carries a token signed
+ * with a key that only exists in this process, and requests without a valid one are refused. The
+ * proxy can thus only be used for the sources and sessions this process registered.
+ *
+ * Apart from {@link #getInstance(Context)} and logging this class only depends on java.net, so it can
+ * be run against a local stand-in origin server.
+ */
+public class VideoCacheProxy implements Runnable {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String CACHE_DIRECTORY = "react-native-video";
+    private static final String PARAM_URL = "url";
+    /* package */ static final String PARAM_SESSION = "session";
+    /* package */ static final String PARAM_TOKEN = "token";
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final int TIMEOUT_MS = 15000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static VideoCacheProxy sInstance;
+
+    private final VideoCache mCache;
+    private final ServerSocket mServerSocket;
+    private final SecretKeySpec mTokenKey;
+    private final Map<String, Session> mSessions = new HashMap<String, Session>();
+    private int mNextSessionId = 0;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "VideoCacheProxy");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public static synchronized VideoCacheProxy getInstance(final Context context) throws IOException {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+            sInstance = new VideoCacheProxy(new VideoCache(directory, DEFAULT_MAX_BYTES));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the cache of the running proxy, or null if no source has been cached since launch.
+     */
+    public static synchronized VideoCache getRunningCache() {
+        return sInstance == null ? null : sInstance.getCache();
+    }
+
+    public VideoCacheProxy(final VideoCache cache) throws IOException {
+        mCache = cache;
+        byte[] tokenKey = new byte[32];
+        new SecureRandom().nextBytes(tokenKey);
+        mTokenKey = new SecretKeySpec(tokenKey, SIGNATURE_ALGORITHM);
+        mServerSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        mExecutor.execute(this);
+    }
+
+    public VideoCache getCache() {
+        return mCache;
+    }
+
+    public int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the loopback url that serves the given origin url through the cache.
+     */
+    public String getProxyUrl(final String url) {
+        try {
+            return "http://127.0.0.1:" + getPort() + "/?" + PARAM_URL + "=" + URLEncoder.encode(url, "UTF-8")
+                    + "&" + PARAM_TOKEN + "=" + sign(PARAM_URL, url);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Serves requests to urls registered with {@link #addSession(Session, String)}. Called on a proxy
+     * thread with the query parameters of the request and the headers to forward to an origin.
+     */
+    public interface Session {
+        void serve(Map<String, String> params, Map<String, String> headers, OutputStream out, boolean isHead)
+                throws IOException;
+    }
+
+    /**
+     * Registers a session until the returned handle is closed, which its owner must do once no player
+     * uses the session's url anymore. The url ends with the given file name, since players may pick a
+     * format based on it.
+     */
+    public synchronized SessionHandle addSession(final Session session, final String fileName) {
+        String id = Integer.toString(mNextSessionId++);
+        mSessions.put(id, session);
+        return new SessionHandle(id, "http://127.0.0.1:" + getPort() + "/" + fileName + "?" + PARAM_SESSION
+                + "=" + id + "&" + PARAM_TOKEN + "=" + sign(PARAM_SESSION, id));
+    }
+
+    private synchronized Session getSession(final String id) {
+        return mSessions.get(id);
+    }
+
+    private synchronized void removeSession(final String id) {
+        mSessions.remove(id);
+    }
+
+    /**
+     * A registered {@link Session}. Requests to its url are refused once it has been closed.
+     */
+    public class SessionHandle implements Closeable {
+
+        private final String mId;
+        private final String mUrl;
+
+        private SessionHandle(final String id, final String url) {
+            mId = id;
+            mUrl = url;
+        }
+
+        public String getUrl() {
+            return mUrl;
+        }
+
+        @Override
+        public void close() {
+            removeSession(mId);
+        }
+    }
+
+    public void shutdown() {
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            // Ignore.
+        }
+        mExecutor.shutdownNow();
+    }
+
+    @Override
+    public void run() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            serve(socket);
+                        } catch (IOException e) {
+                            // The player went away or the origin failed mid-response.
+                        } catch (RuntimeException e) {
+                            // A bug or an origin we don't understand must not take the app down.
+                            Log.w(ReactVideoViewManager.REACT_CLASS, "Video cache proxy request failed", e);
+                        } finally {
+                            closeQuietly(socket);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                // The server socket was closed.
+            }
+        }
+    }
+
+    private void serve(final Socket socket) throws IOException {
+        socket.setSoTimeout(TIMEOUT_MS);
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+
+        String requestLine = readLine(in);
+        if (requestLine == null) {
+            return;
+        }
+        String[] parts = requestLine.split(" ");
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        String line;
+        while ((line = readLine(in)) != null && line.length() > 0) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                headers.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+            }
+        }
+
+        Map<String, String> params = parts.length > 1 ? parseQuery(parts[1]) : new LinkedHashMap<String, String>();
+        boolean isHead = "HEAD".equals(parts[0]);
+
+        String sessionId = params.get(PARAM_SESSION);
+        String url = params.get(PARAM_URL);
+        if (sessionId != null ? !verify(PARAM_SESSION, sessionId, params.get(PARAM_TOKEN))
+                : url == null || !verify(PARAM_URL, url, params.get(PARAM_TOKEN))) {
+            writeStatus(out, 403, "Forbidden");
+            return;
+        }
+
+        if (sessionId != null) {
+            Session session = getSession(sessionId);
+            if (session == null) {
+                writeStatus(out, 404, "Not Found");
+            } else {
+                session.serve(params, getOriginHeaders(headers), out, isHead);
+            }
+            return;
+        }
+
+        String key = VideoCache.keyFor(url);
+        ByteRange range = ByteRange.parse(getHeader(headers, "Range"));
+
+        Origin origin = new Origin(url, key, getOriginHeaders(headers));
+        VideoCache.Metadata metadata = mCache.getMetadata(key);
+        if (metadata == null) {
+            // Fetching the first requested segment tells us the length of the source. Where a suffix
+            // range starts depends on that length, so the first segment is fetched for it.
+            int firstSegment = range == null || range.isSuffix() ? 0 : (int) (range.mFirst / VideoCache.SEGMENT_SIZE);
+            try {
+                metadata = origin.fetchMetadata(firstSegment);
+            } catch (OriginException e) {
+                writeStatus(out, e.getStatusCode(), "Origin Error");
+                return;
+            }
+            if (metadata == null) {
+                // The origin doesn't tell us its length, so the source can't be split into segments.
+                origin.passThrough(out, isHead);
+                return;
+            }
+        }
+
+        long length = metadata.getLength();
+        boolean isRange = range != null;
+        if (isRange && !range.isSatisfiable(length)) {
+            StringBuilder response = new StringBuilder("HTTP/1.1 416 Range Not Satisfiable\r\n");
+            response.append("Content-Range: bytes */").append(length).append("\r\n");
+            response.append("Connection: close\r\n\r\n");
+            out.write(response.toString().getBytes("ISO-8859-1"));
+            return;
+        }
+        long rangeStart = isRange ? range.getFirst(length) : 0;
+        long rangeEnd = isRange ? range.getLast(length) : length - 1;
+
+        StringBuilder response = new StringBuilder();
+        response.append(isRange ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+        if (metadata.getContentType() != null && metadata.getContentType().length() > 0) {
+            response.append("Content-Type: ").append(metadata.getContentType()).append("\r\n");
+        }
+        response.append("Accept-Ranges: bytes\r\n");
+        response.append("Content-Length: ").append(rangeEnd - rangeStart + 1).append("\r\n");
+        if (isRange) {
+            response.append("Content-Range: bytes ").append(rangeStart).append('-').append(rangeEnd)
+                    .append('/').append(length).append("\r\n");
+        }
+        response.append("Connection: close\r\n\r\n");
+        out.write(response.toString().getBytes("ISO-8859-1"));
+        if (isHead) {
+            out.flush();
+            return;
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int lastSegment = (int) (rangeEnd / VideoCache.SEGMENT_SIZE);
+        for (int segment = (int) (rangeStart / VideoCache.SEGMENT_SIZE); segment <= lastSegment; segment++) {
+            long segmentStart = (long) segment * VideoCache.SEGMENT_SIZE;
+            long segmentLength = Math.min(VideoCache.SEGMENT_SIZE, length - segmentStart);
+            long from = Math.max(rangeStart, segmentStart) - segmentStart;
+            long to = Math.min(rangeEnd, segmentStart + segmentLength - 1) - segmentStart;
+
+            InputStream segmentIn = origin.openSegment(segment, segmentLength);
+            try {
+                skipFully(segmentIn, from);
+                long remaining = to - from + 1;
+                while (remaining > 0) {
+                    int read = segmentIn.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("Segment " + segment + " ended early");
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                if (segment == lastSegment) {
+                    out.flush();
+                    // Finish caching the rest of the segment the player will most likely ask for next.
+                    while (segmentIn.read(buffer) != -1) {
+                        // Keep reading.
+                    }
+                }
+            } finally {
+                segmentIn.close();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * A network source as requested by the player, with the headers to send to its origin.
+     */
+    private class Origin {
+
+        private final String mUrl;
+        private final String mKey;
+        private final Map<String, String> mHeaders;
+
+        private Origin(final String url, final String key, final Map<String, String> headers) {
+            mUrl = url;
+            mKey = key;
+            mHeaders = headers;
+        }
+
+        /**
+         * Fetches and caches a segment, returning the metadata of the source or null if the origin
+         * doesn't report its length.
+         */
+        private VideoCache.Metadata fetchMetadata(final int segment) throws IOException {
+            long segmentStart = (long) segment * VideoCache.SEGMENT_SIZE;
+            HttpURLConnection connection = open(segmentStart, segmentStart + VideoCache.SEGMENT_SIZE - 1);
+            boolean reusable = false;
+            try {
+                long length = getSourceLength(connection);
+                if (length < 0) {
+                    return null;
+                }
+                VideoCache.Metadata metadata = new VideoCache.Metadata(length, connection.getContentType());
+                mCache.putMetadata(mKey, metadata);
+
+                InputStream in = new CachingInputStream(openBody(connection, segmentStart), mKey, segment,
+                        Math.min(VideoCache.SEGMENT_SIZE, length - segmentStart));
+                byte[] buffer = new byte[BUFFER_SIZE];
+                try {
+                    while (in.read(buffer) != -1) {
+                        // Keep reading, CachingInputStream writes the segment to the cache.
+                    }
+                } finally {
+                    in.close();
+                }
+                reusable = true;
+                return metadata;
+            } finally {
+                VideoHttp.close(connection, reusable);
+            }
+        }
+
+        /**
+         * Opens a segment from the cache, or from the origin while caching it.
+         */
+        private InputStream openSegment(final int segment, final long segmentLength) throws IOException {
+            File file = mCache.getSegment(mKey, segment);
+            if (file != null) {
+                return new FileInputStream(file);
+            }
+
+            long segmentStart = (long) segment * VideoCache.SEGMENT_SIZE;
+            final HttpURLConnection connection = open(segmentStart, segmentStart + segmentLength - 1);
+            return new CachingInputStream(openBody(connection, segmentStart), mKey, segment, segmentLength) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    // Players often stop reading a segment when they seek; only whole ones are reused.
+                    VideoHttp.close(connection, isComplete());
+                }
+            };
+        }
+
+        /**
+         * Streams the origin response as is, for sources that can't be cached.
+         */
+        private void passThrough(final OutputStream out, final boolean isHead) throws IOException {
+            HttpURLConnection connection = open(0, -1);
+            boolean reusable = false;
+            try {
+                StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\n");
+                if (connection.getContentType() != null) {
+                    response.append("Content-Type: ").append(connection.getContentType()).append("\r\n");
+                }
+                response.append("Connection: close\r\n\r\n");
+                out.write(response.toString().getBytes("ISO-8859-1"));
+                if (!isHead) {
+                    InputStream in = connection.getInputStream();
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    in.close();
+                    reusable = true;
+                }
+                out.flush();
+            } finally {
+                VideoHttp.close(connection, reusable);
+            }
+        }
+
+        private HttpURLConnection open(final long start, final long end) throws IOException {
+            HttpURLConnection connection = VideoHttp.open(mUrl, mHeaders, start, end);
+            int statusCode = connection.getResponseCode();
+            if (statusCode != HttpURLConnection.HTTP_OK && statusCode != HttpURLConnection.HTTP_PARTIAL) {
+                connection.disconnect();
+                throw new OriginException(statusCode);
+            }
+            return connection;
+        }
+
+        private InputStream openBody(final HttpURLConnection connection, final long start) throws IOException {
+            InputStream in = connection.getInputStream();
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                // The origin ignored the range and sent the whole source.
+                skipFully(in, start);
+            }
+            return in;
+        }
+
+        /**
+         * Returns the length of the source, or -1 if the origin doesn't report it or reports it in a
+         * form we don't understand.
+         */
+        private long getSourceLength(final HttpURLConnection connection) throws IOException {
+            try {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+                    String contentRange = connection.getHeaderField("Content-Range");
+                    int separator = contentRange == null ? -1 : contentRange.lastIndexOf('/');
+                    if (separator < 0 || contentRange.endsWith("*")) {
+                        return -1;
+                    }
+                    return Math.max(-1, Long.parseLong(contentRange.substring(separator + 1).trim()));
+                }
+                String contentLength = connection.getHeaderField("Content-Length");
+                return contentLength == null ? -1 : Math.max(-1, Long.parseLong(contentLength.trim()));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Copies everything read from an origin segment into a temporary file, which is committed to the
+     * cache once the whole segment has been read and discarded otherwise.
+     */
+    private class CachingInputStream extends FilterInputStream {
+
+        private final String mKey;
+        private final int mSegment;
+        private final long mSegmentLength;
+        private final File mTempFile;
+        private final OutputStream mTempOut;
+        private long mRemaining;
+        private boolean mClosed = false;
+
+        private CachingInputStream(final InputStream in, final String key, final int segment,
+                                   final long segmentLength) throws IOException {
+            super(in);
+            mKey = key;
+            mSegment = segment;
+            mSegmentLength = segmentLength;
+            mRemaining = segmentLength;
+            mTempFile = mCache.createTempFile(key);
+            mTempOut = new FileOutputStream(mTempFile);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(count, mRemaining));
+            if (read == -1) {
+                mRemaining = 0;
+                return -1;
+            }
+            mTempOut.write(buffer, offset, read);
+            mRemaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long skipped = 0;
+            while (skipped < count) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        /**
+         * Returns whether the whole segment has been read.
+         */
+        protected boolean isComplete() {
+            return mRemaining == 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            mTempOut.close();
+            if (mRemaining == 0 && mTempFile.length() == mSegmentLength) {
+                mCache.putSegment(mKey, mSegment, mTempFile);
+            } else {
+                mTempFile.delete();
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * A single range of bytes requested with a Range header: {@code bytes=first-last},
+     * {@code bytes=first-} or {@code bytes=-suffixLength} for the last suffixLength bytes.
+     */
+    /* package */ static class ByteRange {
+
+        private static final long UNSPECIFIED = -1;
+
+        private final long mFirst;
+        private final long mLast;
+        private final long mSuffixLength;
+
+        private ByteRange(final long first, final long last, final long suffixLength) {
+            mFirst = first;
+            mLast = last;
+            mSuffixLength = suffixLength;
+        }
+
+        /**
+         * Parses the value of a Range header. Returns null if there is none, or if it isn't a single
+         * valid range of bytes, in which case HTTP says to ignore it and send the whole source.
+         */
+        /* package */ static ByteRange parse(final String header) {
+            if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+                return null;
+            }
+            String[] bounds = header.substring("bytes=".length()).split("-", -1);
+            if (bounds.length != 2) {
+                return null;
+            }
+            try {
+                String first = bounds[0].trim();
+                String last = bounds[1].trim();
+                if (first.length() == 0) {
+                    return last.length() == 0 ? null : new ByteRange(UNSPECIFIED, UNSPECIFIED, Long.parseLong(last));
+                }
+                ByteRange range = new ByteRange(Long.parseLong(first),
+                        last.length() == 0 ? UNSPECIFIED : Long.parseLong(last), UNSPECIFIED);
+                return range.mLast != UNSPECIFIED && range.mLast < range.mFirst ? null : range;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /* package */ boolean isSuffix() {
+            return mSuffixLength != UNSPECIFIED;
+        }
+
+        /**
+         * Returns whether any byte of a source of the given length is in this range.
+         */
+        /* package */ boolean isSatisfiable(final long length) {
+            return isSuffix() ? mSuffixLength > 0 && length > 0 : mFirst < length;
+        }
+
+        /**
+         * Returns the offset of the first byte in this range, which must be satisfiable.
+         */
+        /* package */ long getFirst(final long length) {
+            return isSuffix() ? Math.max(0, length - mSuffixLength) : mFirst;
+        }
+
+        /**
+         * Returns the offset of the last byte in this range, inclusive, which must be satisfiable.
+         */
+        /* package */ long getLast(final long length) {
+            return isSuffix() || mLast == UNSPECIFIED ? length - 1 : Math.min(mLast, length - 1);
+        }
+    }
+
+    private static class OriginException extends IOException {
+
+        private final int mStatusCode;
+
+        private OriginException(final int statusCode) {
+            super("Origin responded with " + statusCode);
+            mStatusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return mStatusCode;
+        }
+    }
+
+    /**
+     * Returns the token that proves a value of the given url parameter was handed out by this proxy.
+     */
+    private String sign(final String param, final String value) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(mTokenKey);
+            byte[] signature = mac.doFinal((param + "=" + value).getBytes("UTF-8"));
+            StringBuilder token = new StringBuilder(signature.length * 2);
+            for (byte b : signature) {
+                token.append(Character.forDigit((b >> 4) & 0xf, 16));
+                token.append(Character.forDigit(b & 0xf, 16));
+            }
+            return token.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean verify(final String param, final String value, final String token) {
+        // Compares in constant time, so the token can't be guessed byte by byte.
+        return token != null && MessageDigest.isEqual(sign(param, value).getBytes(), token.getBytes());
+    }
+
+    private static Map<String, String> parseQuery(final String path) throws IOException {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        int queryStart = path.indexOf('?');
+        if (queryStart < 0) {
+            return params;
+        }
+        for (String param : path.substring(queryStart + 1).split("&")) {
+            int separator = param.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(param.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(param.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Returns the request headers that should be forwarded to the origin.
+     */
+    private static Map<String, String> getOriginHeaders(final Map<String, String> headers) {
+        Map<String, String> originHeaders = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.US);
+            if (!name.equals("host") && !name.equals("range") && !name.equals("connection")
+                    && !name.equals("accept-encoding")) {
+                originHeaders.put(header.getKey(), header.getValue());
+            }
+        }
+        return originHeaders;
+    }
+
+    private static String getHeader(final Map<String, String> headers, final String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    /* package */ static void writeStatus(final OutputStream out, final int statusCode, final String reason) throws IOException {
+        out.write(("HTTP/1.1 " + statusCode + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes("ISO-8859-1"));
+        out.flush();
+    }
+
+    private static void skipFully(final InputStream in, final long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new IOException("Stream ended while skipping");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void closeQuietly(final Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore.
+        }
+    }
+}
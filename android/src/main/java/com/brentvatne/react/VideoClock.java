@@ -0,0 +1,131 @@
+package com.brentvatne.react;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable snapshot of the playback clock of a {@link ReactVideoView}: its position at a point in
+ * time and the rate at which the position advances from there. Views publish a new snapshot whenever
+ * that rate changes or the position jumps, i.e. on play, pause, seek, rate changes, stalls, loads and
+ * loops, so the position at any later time can be extrapolated without asking the player. While the
+ * video repeats, the extrapolated position wraps around to the start at the end of the video.
+ *
+ * The latest snapshot of every view is kept by React tag and may be read from any thread.
+ */
+public class VideoClock {
+
+    public static final String PROP_POSITION = "position";
+    public static final String PROP_TIMESTAMP = "timestamp";
+    public static final String PROP_RATE = "rate";
+    public static final String PROP_PLAYING = "playing";
+    public static final String PROP_DURATION = "duration";
+    public static final String PROP_LOOPING = "looping";
+    public static final String PROP_REASON = "reason";
+
+    public static final String REASON_LOAD = "load";
+    public static final String REASON_PLAY = "play";
+    public static final String REASON_PAUSE = "pause";
+    public static final String REASON_RATE = "rate";
+    public static final String REASON_SEEK = "seek";
+    public static final String REASON_STALL = "stall";
+    public static final String REASON_RESUME = "resume";
+    public static final String REASON_END = "end";
+    public static final String REASON_LOOP = "loop";
+    public static final String REASON_REPEAT = "repeat";
+    public static final String REASON_QUERY = "query";
+
+    private static final Map<Integer, VideoClock> sClocks = new ConcurrentHashMap<Integer, VideoClock>();
+
+    private final long mPosition;
+    private final long mDuration;
+    private final float mRate;
+    private final boolean mLooping;
+    private final String mReason;
+    private final long mElapsedRealtime = SystemClock.elapsedRealtime();
+    private final long mWallTime = System.currentTimeMillis();
+
+    public VideoClock(final long position, final long duration, final float rate, final String reason) {
+        this(position, duration, rate, false, reason);
+    }
+
+    public VideoClock(final long position, final long duration, final float rate, final boolean looping,
+                      final String reason) {
+        mPosition = position;
+        mDuration = duration;
+        mRate = rate;
+        mLooping = looping;
+        mReason = reason;
+    }
+
+    public static void publish(final int tag, final VideoClock clock) {
+        sClocks.put(tag, clock);
+    }
+
+    public static void remove(final int tag) {
+        sClocks.remove(tag);
+    }
+
+    /**
+     * Returns the latest snapshot of the view with the given tag, or null if it has none.
+     */
+    public static VideoClock get(final int tag) {
+        return sClocks.get(tag);
+    }
+
+    public float getRate() {
+        return mRate;
+    }
+
+    public boolean isPlaying() {
+        return mRate != 0.0f;
+    }
+
+    public boolean isLooping() {
+        return mLooping;
+    }
+
+    /**
+     * Returns the position in ms at the given {@link SystemClock#elapsedRealtime()}, which doesn't go
+     * past the end of the video, or starts over from the beginning if the video repeats.
+     */
+    public long getPosition(final long elapsedRealtime) {
+        long position = mPosition + (long) (Math.max(0, elapsedRealtime - mElapsedRealtime) * mRate);
+        if (mDuration <= 0) {
+            return position;
+        }
+        return mLooping ? position % mDuration : Math.min(position, mDuration);
+    }
+
+    /**
+     * Returns this snapshot as sent in the onVideoClock event. The timestamp is wall clock time in ms,
+     * so JS can extrapolate the position with Date.now().
+     */
+    public WritableMap toWritableMap() {
+        return toWritableMap(mPosition, mWallTime, mReason);
+    }
+
+    /**
+     * Returns the position extrapolated to now, in the same format as {@link #toWritableMap()}.
+     */
+    public WritableMap toWritableMapNow() {
+        long elapsedRealtime = SystemClock.elapsedRealtime();
+        return toWritableMap(getPosition(elapsedRealtime), mWallTime + (elapsedRealtime - mElapsedRealtime),
+                REASON_QUERY);
+    }
+
+    private WritableMap toWritableMap(final long position, final long timestamp, final String reason) {
+        WritableMap clock = VideoArguments.createMap();
+        clock.putDouble(PROP_POSITION, position / 1000.0);
+        clock.putDouble(PROP_TIMESTAMP, timestamp);
+        clock.putDouble(PROP_RATE, mRate);
+        clock.putBoolean(PROP_PLAYING, isPlaying());
+        clock.putDouble(PROP_DURATION, mDuration / 1000.0);
+        clock.putBoolean(PROP_LOOPING, mLooping);
+        clock.putString(PROP_REASON, reason);
+        return clock;
+    }
+}
@@ -0,0 +1,168 @@
+package com.brentvatne.react;
+
+import android.os.Debug;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counters for the costs of the video pipeline that tend to regress unnoticed: objects allocated
+ * on the main thread per progress tick, events sent over the bridge, and the time spent applying
+ * the src prop. They are collected while tracing is enabled through {@link ReactVideoTraceModule},
+ * and can be compared between builds by running the same scenario with and without a change.
+ *
+ * Allocations are counted with {@link Debug#startAllocCounting()}, which slows down every allocation
+ * in the process while enabled.
+ */
+public class VideoCounters {
+
+    public static final String PROP_DURATION = "duration";
+    public static final String PROP_PROGRESS_TICKS = "progressTicks";
+    public static final String PROP_ALLOCATIONS_PER_TICK = "allocationsPerTick";
+    public static final String PROP_MAX_ALLOCATIONS_PER_TICK = "maxAllocationsPerTick";
+    public static final String PROP_TICK_TIME = "tickTime";
+    public static final String PROP_MAX_TICK_TIME = "maxTickTime";
+    public static final String PROP_BRIDGE_EVENTS = "bridgeEvents";
+    public static final String PROP_BRIDGE_EVENTS_PER_SECOND = "bridgeEventsPerSecond";
+    public static final String PROP_EVENTS = "events";
+    public static final String PROP_SET_SRC_COUNT = "setSrcCount";
+    public static final String PROP_SET_SRC_LATENCY = "setSrcLatency";
+    public static final String PROP_MAX_SET_SRC_LATENCY = "maxSetSrcLatency";
+
+    private static final long NOT_COUNTED = -1;
+
+    private static volatile boolean sEnabled = false;
+
+    private static long sStartTime = SystemClock.elapsedRealtime();
+
+    private static long sTickStartTime = 0; // Ticks only run on the main thread, one at a time.
+    private static long sProgressTicks = 0;
+    private static long sTickAllocations = 0;
+    private static long sMaxTickAllocations = 0;
+    private static long sTickTime = 0;
+    private static long sMaxTickTime = 0;
+
+    private static long sBridgeEvents = 0;
+    // Count of every event name, boxed in an array so that counting doesn't allocate.
+    private static final Map<String, long[]> sEventCounts = new HashMap<String, long[]>();
+
+    private static long sSetSrcCount = 0;
+    private static long sSetSrcTime = 0;
+    private static long sMaxSetSrcTime = 0;
+
+    public static synchronized void setEnabled(final boolean enabled) {
+        if (enabled == sEnabled) {
+            return;
+        }
+        sEnabled = enabled;
+        if (enabled) {
+            Debug.startAllocCounting();
+            reset();
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    public static synchronized void reset() {
+        sStartTime = SystemClock.elapsedRealtime();
+        sProgressTicks = 0;
+        sTickAllocations = 0;
+        sMaxTickAllocations = 0;
+        sTickTime = 0;
+        sMaxTickTime = 0;
+        sBridgeEvents = 0;
+        sEventCounts.clear();
+        sSetSrcCount = 0;
+        sSetSrcTime = 0;
+        sMaxSetSrcTime = 0;
+    }
+
+    /**
+     * Returns the allocation count of the current thread to pass to {@link #endProgressTick}, or a
+     * negative value if counting is disabled.
+     */
+    public static long beginProgressTick() {
+        if (!sEnabled) {
+            return NOT_COUNTED;
+        }
+        sTickStartTime = System.nanoTime();
+        return Debug.getThreadAllocCount();
+    }
+
+    public static void endProgressTick(final long allocCount) {
+        if (allocCount < 0) {
+            return;
+        }
+        long allocations = Debug.getThreadAllocCount() - allocCount;
+        long time = System.nanoTime() - sTickStartTime;
+        synchronized (VideoCounters.class) {
+            sProgressTicks++;
+            sTickAllocations += allocations;
+            sMaxTickAllocations = Math.max(sMaxTickAllocations, allocations);
+            sTickTime += time;
+            sMaxTickTime = Math.max(sMaxTickTime, time);
+        }
+    }
+
+    public static void onBridgeEvent(final String name) {
+        if (!sEnabled) {
+            return;
+        }
+        synchronized (VideoCounters.class) {
+            sBridgeEvents++;
+            long[] count = sEventCounts.get(name);
+            if (count == null) {
+                count = new long[1];
+                sEventCounts.put(name, count);
+            }
+            count[0]++;
+        }
+    }
+
+    public static void onSetSrc(final long startNanos) {
+        if (!sEnabled) {
+            return;
+        }
+        long time = System.nanoTime() - startNanos;
+        synchronized (VideoCounters.class) {
+            sSetSrcCount++;
+            sSetSrcTime += time;
+            sMaxSetSrcTime = Math.max(sMaxSetSrcTime, time);
+        }
+    }
+
+    /**
+     * Returns the counters since they were enabled or last reset. Times are in ms, and averages are 0
+     * until something has been counted.
+     */
+    public static synchronized WritableMap toWritableMap() {
+        double duration = (SystemClock.elapsedRealtime() - sStartTime) / 1000.0;
+
+        WritableMap events = VideoArguments.createMap();
+        for (Map.Entry<String, long[]> entry : sEventCounts.entrySet()) {
+            events.putDouble(entry.getKey(), entry.getValue()[0]);
+        }
+
+        WritableMap counters = VideoArguments.createMap();
+        counters.putDouble(PROP_DURATION, duration);
+        counters.putDouble(PROP_PROGRESS_TICKS, sProgressTicks);
+        counters.putDouble(PROP_ALLOCATIONS_PER_TICK, average(sTickAllocations, sProgressTicks));
+        counters.putDouble(PROP_MAX_ALLOCATIONS_PER_TICK, sMaxTickAllocations);
+        counters.putDouble(PROP_TICK_TIME, average(sTickTime, sProgressTicks) / 1e6);
+        counters.putDouble(PROP_MAX_TICK_TIME, sMaxTickTime / 1e6);
+        counters.putDouble(PROP_BRIDGE_EVENTS, sBridgeEvents);
+        counters.putDouble(PROP_BRIDGE_EVENTS_PER_SECOND, duration > 0 ? sBridgeEvents / duration : 0);
+        counters.putMap(PROP_EVENTS, events);
+        counters.putDouble(PROP_SET_SRC_COUNT, sSetSrcCount);
+        counters.putDouble(PROP_SET_SRC_LATENCY, average(sSetSrcTime, sSetSrcCount) / 1e6);
+        counters.putDouble(PROP_MAX_SET_SRC_LATENCY, sMaxSetSrcTime / 1e6);
+        return counters;
+    }
+
+    private static double average(final long sum, final long count) {
+        return count > 0 ? (double) sum / count : 0;
+    }
+}
@@ -0,0 +1,632 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads network sources for offline playback. Sources are fetched in fixed size chunks with
+ * ranged requests, several at once, on a fixed number of connections shared by all downloads, so
+ * chunks of the download started first are fetched first. A chunk that failed is retried after a
+ * delay, during which its connection fetches other chunks.
+ *
+ * Each download has its own directory, named after the key of its url, holding the partial video,
+ * which chunks are written into at their offset, and a journal listing the url, the length and every
+ * chunk that has been written completely. A paused, failed or interrupted download continues from the
+ * chunks in its journal. Once every chunk has been written the video is renamed to its final name and
+ * {@link VideoSource#resolve} plays it instead of the network source.
+ */
+public class VideoDownloads {
+
+    public static final String STATE_QUEUED = "queued";
+    public static final String STATE_DOWNLOADING = "downloading";
+    public static final String STATE_PAUSED = "paused";
+    public static final String STATE_COMPLETED = "completed";
+    public static final String STATE_FAILED = "failed";
+
+    public static final String PROP_URI = "uri";
+    public static final String PROP_STATE = "state";
+    public static final String PROP_BYTES_DOWNLOADED = "bytesDownloaded";
+    public static final String PROP_LENGTH = "length";
+    public static final String PROP_ERROR = "error";
+
+    public static final int MAX_CONNECTIONS = 4;
+    public static final int CHUNK_SIZE = 2 * 1024 * 1024;
+
+    private static final String DIRECTORY = "react-native-video-downloads";
+    private static final String VIDEO_FILE = "video";
+    private static final String PARTIAL_FILE = "video.part";
+    private static final String JOURNAL_FILE = "journal";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    /**
+     * Notified of state changes and, at most every {@link #PROGRESS_INTERVAL_MS}, of the progress of
+     * every download. Called on download threads.
+     */
+    public interface Listener {
+        void onDownloadChanged(WritableMap download);
+    }
+
+    private static VideoDownloads sInstance;
+
+    private final File mDirectory;
+    private final Map<String, Download> mDownloads = new LinkedHashMap<String, Download>();
+    private final ScheduledExecutorService mExecutor = Executors.newScheduledThreadPool(MAX_CONNECTIONS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "VideoDownloads");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private long mQuota = Long.MAX_VALUE;
+    private Listener mListener;
+
+    public static synchronized VideoDownloads getInstance(final Context context) {
+        if (sInstance == null) {
+            sInstance = new VideoDownloads(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the downloaded video of a url, or null if it hasn't been downloaded completely. Until a
+     * download is started this only looks for the video on disk instead of loading every download, so
+     * it is cheap enough to call for every network source that is played.
+     */
+    public static File findCompletedFile(final Context context, final String url) {
+        VideoDownloads downloads;
+        synchronized (VideoDownloads.class) {
+            downloads = sInstance;
+        }
+        if (downloads != null) {
+            return downloads.getCompletedFile(url);
+        }
+        File directory = new File(new File(context.getApplicationContext().getFilesDir(), DIRECTORY),
+                VideoCache.keyFor(url));
+        File file = new File(directory, VIDEO_FILE);
+        return file.exists() ? file : null;
+    }
+
+    /* package */ VideoDownloads(final File directory) {
+        mDirectory = directory;
+        mDirectory.mkdirs();
+        index();
+    }
+
+    public synchronized void setListener(final Listener listener) {
+        mListener = listener;
+    }
+
+    public synchronized Listener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Limits the bytes all downloads may take up together. Downloads that would exceed it fail when
+     * they start; downloads that are already running are unaffected.
+     */
+    public synchronized void setQuota(final long quota) {
+        mQuota = quota;
+    }
+
+    /**
+     * Starts downloading a source, or continues downloading it where it left off. Does nothing if the
+     * source is already downloaded or being downloaded.
+     */
+    public void download(final VideoSource source) {
+        // May block on the cookie storage, so it is looked up before taking the lock.
+        download(source, source.getRequestHeaders());
+    }
+
+    /* package */ synchronized void download(final VideoSource source, final Map<String, String> headers) {
+        if (!source.isNetwork() || HlsAdaptiveBackend.TYPE_HLS.equals(source.getType())) {
+            throw new IllegalArgumentException("Only progressive network sources can be downloaded: " + source.getUri());
+        }
+
+        Download download = mDownloads.get(source.getUri());
+        if (download == null) {
+            download = new Download(source.getUri(), new File(mDirectory, VideoCache.keyFor(source.getUri())));
+            mDownloads.put(download.mUrl, download);
+        } else if (!STATE_PAUSED.equals(download.mState) && !STATE_FAILED.equals(download.mState)) {
+            return;
+        }
+
+        download.mHeaders = headers;
+        download.mGeneration++;
+        download.mError = null;
+        setState(download, STATE_QUEUED);
+        mExecutor.execute(new StartTask(download, download.mGeneration));
+    }
+
+    /**
+     * Stops a download, keeping the chunks that have been written completely.
+     */
+    public synchronized void pause(final String url) {
+        Download download = mDownloads.get(url);
+        if (download != null && (STATE_QUEUED.equals(download.mState) || STATE_DOWNLOADING.equals(download.mState))) {
+            stop(download);
+            setState(download, STATE_PAUSED);
+        }
+    }
+
+    /**
+     * Stops a download and deletes everything downloaded for it.
+     */
+    public synchronized void remove(final String url) {
+        Download download = mDownloads.remove(url);
+        if (download != null) {
+            stop(download);
+            deleteRecursively(download.mDirectory);
+        }
+    }
+
+    /**
+     * Returns the downloaded video of a url, or null if it hasn't been downloaded completely.
+     */
+    public synchronized File getCompletedFile(final String url) {
+        Download download = mDownloads.get(url);
+        if (download == null || !STATE_COMPLETED.equals(download.mState)) {
+            return null;
+        }
+        File file = new File(download.mDirectory, VIDEO_FILE);
+        if (!file.exists()) {
+            // Deleted behind our back, e.g. by clearing the app's storage.
+            mDownloads.remove(url);
+            deleteRecursively(download.mDirectory);
+            return null;
+        }
+        return file;
+    }
+
+    public synchronized WritableArray getDownloads() {
+        WritableArray downloads = VideoArguments.createArray();
+        for (Download download : mDownloads.values()) {
+            downloads.pushMap(download.toWritableMap());
+        }
+        return downloads;
+    }
+
+    private void stop(final Download download) {
+        // Running tasks of an older generation stop at their next buffer.
+        download.mGeneration++;
+        download.mBytesDownloaded = download.getCompletedBytes();
+    }
+
+    private void setState(final Download download, final String state) {
+        download.mState = state;
+        notifyChanged(download);
+    }
+
+    private void notifyChanged(final Download download) {
+        download.mLastNotifyTime = System.currentTimeMillis();
+        if (mListener != null) {
+            mListener.onDownloadChanged(download.toWritableMap());
+        }
+    }
+
+    private synchronized boolean isCurrent(final Download download, final int generation) {
+        return download.mGeneration == generation && mDownloads.get(download.mUrl) == download;
+    }
+
+    private synchronized void fail(final Download download, final int generation, final Exception e) {
+        if (!isCurrent(download, generation)) {
+            return;
+        }
+        Log.w(ReactVideoViewManager.REACT_CLASS, "Download of " + download.mUrl + " failed", e);
+        stop(download);
+        download.mError = e.getMessage() == null ? e.toString() : e.getMessage();
+        setState(download, STATE_FAILED);
+    }
+
+    private synchronized long getReservedBytes(final Download except) {
+        long reserved = 0;
+        for (Download download : mDownloads.values()) {
+            if (download != except) {
+                reserved += Math.max(download.mLength, download.mBytesDownloaded);
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Looks up the length of a download and whether its origin serves ranges, then queues the chunks
+     * it still needs.
+     */
+    private class StartTask implements Runnable {
+
+        private final Download mDownload;
+        private final int mGeneration;
+
+        private StartTask(final Download download, final int generation) {
+            mDownload = download;
+            mGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (mDownload.mLength < 0) {
+                    probe();
+                }
+                File partialFile = new File(mDownload.mDirectory, PARTIAL_FILE);
+                synchronized (VideoDownloads.this) {
+                    if (!isCurrent(mDownload, mGeneration)) {
+                        return;
+                    }
+                    if (!partialFile.exists() && !mDownload.mChunks.isEmpty()) {
+                        // The chunks in the journal are gone, start over.
+                        mDownload.writeJournal();
+                    }
+                    long needed = Math.max(0, mDownload.mLength) - mDownload.getCompletedBytes();
+                    if (getReservedBytes(mDownload) + Math.max(0, mDownload.mLength) > mQuota) {
+                        throw new IOException("Download quota exceeded");
+                    }
+                    if (needed > mDirectory.getUsableSpace()) {
+                        throw new IOException("Not enough storage space");
+                    }
+                    if (mDownload.mRanged) {
+                        RandomAccessFile file = new RandomAccessFile(partialFile, "rw");
+                        try {
+                            // Allocated upfront, so running out of space fails now rather than midway.
+                            file.setLength(mDownload.mLength);
+                        } finally {
+                            file.close();
+                        }
+                    }
+
+                    mDownload.mBytesDownloaded = mDownload.getCompletedBytes();
+                    mDownload.mPendingChunks = 0;
+                    for (int chunk = 0; chunk < mDownload.getChunkCount(); chunk++) {
+                        if (!mDownload.mChunks.get(chunk)) {
+                            mDownload.mPendingChunks++;
+                            mExecutor.execute(new ChunkTask(mDownload, mGeneration, chunk, 1));
+                        }
+                    }
+                    setState(mDownload, STATE_DOWNLOADING);
+                    if (mDownload.mPendingChunks == 0) {
+                        complete(mDownload, mGeneration);
+                    }
+                }
+            } catch (IOException e) {
+                fail(mDownload, mGeneration, e);
+            }
+        }
+
+        private void probe() throws IOException {
+            HttpURLConnection connection = open(mDownload, 0, 0);
+            boolean reusable = false;
+            try {
+                long length;
+                boolean ranged = connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+                if (ranged) {
+                    String contentRange = connection.getHeaderField("Content-Range");
+                    int separator = contentRange == null ? -1 : contentRange.lastIndexOf('/');
+                    length = separator < 0 || contentRange.endsWith("*")
+                            ? -1 : Long.parseLong(contentRange.substring(separator + 1).trim());
+                } else {
+                    String contentLength = connection.getHeaderField("Content-Length");
+                    length = contentLength == null ? -1 : Long.parseLong(contentLength.trim());
+                }
+                if (length < 0) {
+                    throw new IOException("Unknown length");
+                }
+
+                synchronized (VideoDownloads.this) {
+                    if (!isCurrent(mDownload, mGeneration)) {
+                        return;
+                    }
+                    mDownload.mLength = length;
+                    mDownload.mRanged = ranged;
+                    mDownload.writeJournal();
+                }
+                // Reads the single byte of a ranged response, so the chunks can reuse the socket.
+                reusable = true;
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid length", e);
+            } finally {
+                VideoHttp.close(connection, reusable);
+            }
+        }
+    }
+
+    /**
+     * Writes one chunk into the partial video, or the whole video if its origin doesn't serve ranges.
+     */
+    private class ChunkTask implements Runnable {
+
+        private final Download mDownload;
+        private final int mGeneration;
+        private final int mChunk;
+        private final int mAttempt;
+
+        private ChunkTask(final Download download, final int generation, final int chunk, final int attempt) {
+            mDownload = download;
+            mGeneration = generation;
+            mChunk = chunk;
+            mAttempt = attempt;
+        }
+
+        @Override
+        public void run() {
+            if (!isCurrent(mDownload, mGeneration)) {
+                return;
+            }
+            try {
+                fetch();
+                onChunkWritten();
+            } catch (IOException e) {
+                if (mAttempt == MAX_CHUNK_ATTEMPTS) {
+                    fail(mDownload, mGeneration, e);
+                    return;
+                }
+                // Scheduled rather than slept on, so the connection isn't idle in the meantime.
+                mExecutor.schedule(new ChunkTask(mDownload, mGeneration, mChunk, mAttempt + 1),
+                        RETRY_DELAY_MS << (mAttempt - 1), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void fetch() throws IOException {
+            long start = mDownload.mRanged ? (long) mChunk * CHUNK_SIZE : 0;
+            long end = mDownload.mRanged ? Math.min(start + CHUNK_SIZE, mDownload.mLength) : mDownload.mLength;
+            HttpURLConnection connection = open(mDownload, start, mDownload.mRanged ? end - 1 : -1);
+            RandomAccessFile file = null;
+            long written = 0;
+            boolean reusable = false;
+            try {
+                if (mDownload.mRanged && connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    throw new IOException("Origin stopped serving ranges");
+                }
+                file = new RandomAccessFile(new File(mDownload.mDirectory, PARTIAL_FILE), "rw");
+                file.seek(start);
+                InputStream in = connection.getInputStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while (start + written < end && (read = in.read(buffer)) != -1) {
+                    if (!isCurrent(mDownload, mGeneration)) {
+                        throw new IOException("Stopped");
+                    }
+                    read = (int) Math.min(read, end - start - written);
+                    file.write(buffer, 0, read);
+                    written += read;
+                    onProgress(read);
+                }
+                if (start + written < end) {
+                    throw new IOException("Connection closed after " + written + " bytes");
+                }
+                // The chunk must be on disk before the journal says so.
+                file.getFD().sync();
+                reusable = true;
+            } catch (IOException e) {
+                onProgress(-written);
+                throw e;
+            } finally {
+                closeQuietly(file);
+                VideoHttp.close(connection, reusable);
+            }
+        }
+
+        private void onProgress(final long bytes) {
+            synchronized (VideoDownloads.this) {
+                if (!isCurrent(mDownload, mGeneration)) {
+                    return;
+                }
+                mDownload.mBytesDownloaded += bytes;
+                if (System.currentTimeMillis() - mDownload.mLastNotifyTime >= PROGRESS_INTERVAL_MS) {
+                    notifyChanged(mDownload);
+                }
+            }
+        }
+
+        private void onChunkWritten() throws IOException {
+            synchronized (VideoDownloads.this) {
+                if (!isCurrent(mDownload, mGeneration)) {
+                    return;
+                }
+                mDownload.appendToJournal(mChunk);
+                mDownload.mChunks.set(mChunk);
+                if (--mDownload.mPendingChunks == 0) {
+                    complete(mDownload, mGeneration);
+                }
+            }
+        }
+    }
+
+    private synchronized void complete(final Download download, final int generation) {
+        File partialFile = new File(download.mDirectory, PARTIAL_FILE);
+        if (!partialFile.renameTo(new File(download.mDirectory, VIDEO_FILE))) {
+            fail(download, generation, new IOException("Unable to complete " + download.mUrl));
+            return;
+        }
+        download.mBytesDownloaded = download.mLength;
+        setState(download, STATE_COMPLETED);
+    }
+
+    private static HttpURLConnection open(final Download download, final long start, final long end) throws IOException {
+        HttpURLConnection connection = VideoHttp.open(download.mUrl, download.mHeaders, start, end);
+        int statusCode = connection.getResponseCode();
+        if (statusCode != HttpURLConnection.HTTP_OK && statusCode != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            throw new IOException("Origin responded with " + statusCode);
+        }
+        return connection;
+    }
+
+    /**
+     * Restores the downloads found on disk. Completed ones can be played right away, the others are
+     * paused until they are downloaded again.
+     */
+    private void index() {
+        File[] directories = mDirectory.listFiles();
+        if (directories == null) {
+            return;
+        }
+        for (File directory : directories) {
+            Download download = Download.fromJournal(directory);
+            if (download == null) {
+                deleteRecursively(directory);
+                continue;
+            }
+            download.mState = new File(directory, VIDEO_FILE).exists() ? STATE_COMPLETED : STATE_PAUSED;
+            download.mBytesDownloaded = STATE_COMPLETED.equals(download.mState)
+                    ? download.mLength : download.getCompletedBytes();
+            mDownloads.put(download.mUrl, download);
+        }
+    }
+
+    /**
+     * State of one download. Guarded by the VideoDownloads instance.
+     */
+    private static class Download {
+
+        private final String mUrl;
+        private final File mDirectory;
+        private Map<String, String> mHeaders;
+        private long mLength = -1;
+        private boolean mRanged = false;
+        private final BitSet mChunks = new BitSet();
+        private long mBytesDownloaded = 0;
+        private int mPendingChunks = 0;
+        private String mState = STATE_PAUSED;
+        private String mError = null;
+        // Bumped whenever the download is stopped or restarted, which makes older tasks stop.
+        private int mGeneration = 0;
+        private long mLastNotifyTime = 0;
+
+        private Download(final String url, final File directory) {
+            mUrl = url;
+            mDirectory = directory;
+        }
+
+        private int getChunkCount() {
+            if (!mRanged) {
+                return 1;
+            }
+            return (int) ((mLength + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        }
+
+        private long getCompletedBytes() {
+            if (!mRanged) {
+                return mChunks.get(0) ? mLength : 0;
+            }
+            long bytes = (long) mChunks.cardinality() * CHUNK_SIZE;
+            int lastChunk = getChunkCount() - 1;
+            if (lastChunk >= 0 && mChunks.get(lastChunk)) {
+                bytes -= (long) (lastChunk + 1) * CHUNK_SIZE - mLength;
+            }
+            return bytes;
+        }
+
+        /**
+         * Starts a new journal, which also drops the chunks written for a previous one.
+         */
+        private void writeJournal() throws IOException {
+            mDirectory.mkdirs();
+            mChunks.clear();
+            new File(mDirectory, PARTIAL_FILE).delete();
+            Writer writer = new OutputStreamWriter(new FileOutputStream(new File(mDirectory, JOURNAL_FILE)), "UTF-8");
+            try {
+                writer.write(mUrl);
+                writer.write('\n');
+                writer.write(Long.toString(mLength));
+                writer.write('\n');
+                writer.write(mRanged ? "ranged" : "whole");
+                writer.write('\n');
+            } finally {
+                writer.close();
+            }
+        }
+
+        private void appendToJournal(final int chunk) throws IOException {
+            FileOutputStream out = new FileOutputStream(new File(mDirectory, JOURNAL_FILE), true);
+            try {
+                out.write((chunk + "\n").getBytes("UTF-8"));
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        }
+
+        private static Download fromJournal(final File directory) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(new File(directory, JOURNAL_FILE)), "UTF-8"));
+                Download download = new Download(reader.readLine(), directory);
+                download.mLength = Long.parseLong(reader.readLine());
+                download.mRanged = "ranged".equals(reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // A torn last line is simply fetched again.
+                    try {
+                        download.mChunks.set(Integer.parseInt(line));
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+                return download.mUrl == null ? null : download;
+            } catch (Exception e) {
+                return null;
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+
+        private WritableMap toWritableMap() {
+            WritableMap download = VideoArguments.createMap();
+            download.putString(PROP_URI, mUrl);
+            download.putString(PROP_STATE, mState);
+            download.putDouble(PROP_BYTES_DOWNLOADED, mBytesDownloaded);
+            download.putDouble(PROP_LENGTH, mLength);
+            if (mError != null) {
+                download.putString(PROP_ERROR, mError);
+            }
+            return download;
+        }
+    }
+
+    private static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.brentvatne.react;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.CookieManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The HTTP layer behind every request this library makes itself: origin requests of the
+ * {@link VideoCacheProxy}, HLS playlists and segments, and {@link VideoDownloads}. MediaPlayer fetches
+ * uncached sources with its own stack, which none of this applies to.
+ *
+ * Connections are opened through a {@link Connector}, which apps can replace, e.g. to use their own
+ * HTTP client or certificate pinning. With the default connector, the platform keeps idle keep-alive
+ * connections in a pool per host, so requests to the same CDN host reuse the socket and TLS session
+ * of earlier ones, as long as each response is closed with {@link #close} rather than disconnected.
+ *
+ * May be used from any thread.
+ */
+public class VideoHttp {
+
+    /**
+     * Opens connections for the library's requests.
+     */
+    public interface Connector {
+        /**
+         * Returns an unconnected connection to the url.
+         */
+        HttpURLConnection openConnection(URL url) throws IOException;
+    }
+
+    public static final Connector DEFAULT_CONNECTOR = new Connector() {
+        @Override
+        public HttpURLConnection openConnection(URL url) throws IOException {
+            return (HttpURLConnection) url.openConnection();
+        }
+    };
+
+    public static final int TIMEOUT_MS = 15000;
+
+    // Unread response bodies up to this size are read to the end so that their socket can be reused.
+    private static final int DRAIN_LIMIT = 64 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Cookies are only looked up again after this long, so playlists and remounts don't wait for them.
+    private static final long HEADER_CACHE_TTL_MS = 10000;
+    private static final int HEADER_CACHE_SIZE = 32;
+
+    // An origin is pre-warmed at most this often; the platform keeps idle connections for 5 minutes.
+    private static final long PREWARM_INTERVAL_MS = 60000;
+    private static final int PREWARM_CACHE_SIZE = 32;
+
+    private static volatile Connector sConnector = DEFAULT_CONNECTOR;
+
+    // Cookie headers by origin and directory, least recently used first.
+    private static final Map<String, CachedHeaders> sHeaderCache =
+            new LinkedHashMap<String, CachedHeaders>(HEADER_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedHeaders> eldest) {
+                    return size() > HEADER_CACHE_SIZE;
+                }
+            };
+
+    // When each origin was last pre-warmed, least recently pre-warmed first.
+    private static final Map<String, Long> sPrewarmTimes =
+            new LinkedHashMap<String, Long>(PREWARM_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > PREWARM_CACHE_SIZE;
+                }
+            };
+
+    private static final ExecutorService sPrewarmExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "VideoHttp prewarm");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public static void setConnector(final Connector connector) {
+        sConnector = connector == null ? DEFAULT_CONNECTOR : connector;
+    }
+
+    /**
+     * Opens a connection with the given request headers, for the byte range from start to end
+     * inclusive, or for the whole resource if end is negative. The request is sent once the response
+     * is first accessed.
+     */
+    public static HttpURLConnection open(final String url, final Map<String, String> headers, final long start,
+                                         final long end) throws IOException {
+        HttpURLConnection connection = sConnector.openConnection(new URL(url));
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        if (end >= 0) {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+        }
+        return connection;
+    }
+
+    /**
+     * Closes a connection. If reusable, i.e. its response was handled without errors, the rest of a
+     * short body is read so that the socket goes back to the pool for the next request to its host.
+     * Otherwise the socket is closed.
+     */
+    public static void close(final HttpURLConnection connection, final boolean reusable) {
+        if (reusable) {
+            try {
+                InputStream in;
+                try {
+                    in = connection.getInputStream();
+                } catch (IOException e) {
+                    // Error responses have their body in the error stream.
+                    in = connection.getErrorStream();
+                }
+                if (in == null) {
+                    connection.disconnect();
+                    return;
+                }
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int drained = 0;
+                int read;
+                while (drained < DRAIN_LIMIT && (read = in.read(buffer)) != -1) {
+                    drained += read;
+                }
+                in.close();
+            } catch (IOException e) {
+                // Nothing to reuse.
+            }
+        }
+        // Doesn't affect a socket that has already gone back to the pool.
+        connection.disconnect();
+    }
+
+    /**
+     * Returns the Cookie header for the url, from the cookies shared with WebViews. Cookies are
+     * cached briefly by origin and directory, since they are scoped by path, so looking them up only
+     * blocks on the cookie storage for the first source in a directory. The returned map must not be
+     * modified.
+     */
+    public static Map<String, String> getCookieHeaders(final String url) {
+        String key = getHeaderCacheKey(url);
+        long now = SystemClock.elapsedRealtime();
+        synchronized (sHeaderCache) {
+            CachedHeaders cached = sHeaderCache.get(key);
+            if (cached != null && now - cached.mTime < HEADER_CACHE_TTL_MS) {
+                return cached.mHeaders;
+            }
+        }
+
+        String cookie = CookieManager.getInstance().getCookie(url);
+        Map<String, String> headers = cookie == null
+                ? Collections.<String, String>emptyMap()
+                : Collections.singletonMap("Cookie", cookie);
+        synchronized (sHeaderCache) {
+            sHeaderCache.put(key, new CachedHeaders(headers, now));
+        }
+        return headers;
+    }
+
+    public static void clearHeaderCache() {
+        synchronized (sHeaderCache) {
+            sHeaderCache.clear();
+        }
+    }
+
+    /**
+     * Resolves the host of the url and opens a connection to it in the background, so that the first
+     * request to it doesn't wait for DNS, TCP and TLS. The connection is only reused by requests made
+     * through this class, but the resolved address is cached for the whole device.
+     */
+    public static void prewarm(final String url) {
+        final URL parsedUrl;
+        try {
+            parsedUrl = new URL(url);
+        } catch (IOException e) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Not pre-warming invalid url " + url);
+            return;
+        }
+        String origin = parsedUrl.getProtocol() + "://" + parsedUrl.getAuthority();
+        long now = SystemClock.elapsedRealtime();
+        synchronized (sPrewarmTimes) {
+            Long prewarmTime = sPrewarmTimes.get(origin);
+            if (prewarmTime != null && now - prewarmTime < PREWARM_INTERVAL_MS) {
+                return;
+            }
+            sPrewarmTimes.put(origin, now);
+        }
+
+        sPrewarmExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                HttpURLConnection connection = null;
+                try {
+                    connection = open(parsedUrl.toString(), Collections.<String, String>emptyMap(), 0, -1);
+                    connection.setRequestMethod("HEAD");
+                    connection.getResponseCode();
+                    close(connection, true);
+                } catch (IOException e) {
+                    Log.w(ReactVideoViewManager.REACT_CLASS, "Unable to pre-warm " + parsedUrl.getHost(), e);
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the url up to the last slash of its path, which every cookie that applies to the url is
+     * scoped to.
+     */
+    private static String getHeaderCacheKey(final String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        int schemeEnd = url.indexOf("://");
+        int pathStart = url.indexOf('/', schemeEnd < 0 ? 0 : schemeEnd + 3);
+        if (pathStart < 0 || pathStart >= end) {
+            return url.substring(0, end);
+        }
+        return url.substring(0, url.lastIndexOf('/', end - 1) + 1);
+    }
+
+    private static class CachedHeaders {
+
+        private final Map<String, String> mHeaders;
+        private final long mTime;
+
+        private CachedHeaders(final Map<String, String> headers, final long time) {
+            mHeaders = headers;
+            mTime = time;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepares players for sources ahead of time so a {@link ReactVideoView} that later receives the same
+ * source can adopt an already prepared player instead of paying for prepareAsync itself.
+ *
+ * Prepared players hold decoders, but belong to no view until one adopts them, so they aren't
+ * counted by the {@link DecoderGovernor}. Instead, at most {@link #MAX_PREPARED_AHEAD} of them exist
+ * at a time, whether preloaded or prepared for the upcoming items of playlists.
+ *
+ * Must only be used from the UI thread.
+ */
+public class VideoPreloader {
+
+    public static final int DEFAULT_MAX_PRELOADED = 2;
+    public static final int MAX_PREPARED_AHEAD = 3;
+
+    private static VideoPreloader sInstance;
+
+    // Least recently requested first.
+    private final LinkedHashMap<VideoSource, PreloadedPlayer> mPreloaded =
+            new LinkedHashMap<VideoSource, PreloadedPlayer>(DEFAULT_MAX_PRELOADED, 0.75f, true);
+    private int mMaxPreloaded = DEFAULT_MAX_PRELOADED;
+    // Players returned by prepare() that have been neither released nor adopted yet.
+    private int mPreparedAhead = 0;
+
+    public static VideoPreloader getInstance() {
+        if (sInstance == null) {
+            sInstance = new VideoPreloader();
+        }
+        return sInstance;
+    }
+
+    public void preload(final Context context, final VideoSource source) {
+        if (source.getUri() == null || mPreloaded.get(source) != null || mMaxPreloaded == 0) {
+            return;
+        }
+
+        // Makes room for the new player first, in case the least recently requested one is all that
+        // keeps it from being prepared.
+        trimToSize(mMaxPreloaded - 1);
+        PreloadedPlayer preloaded = prepare(context, source);
+        if (preloaded == null) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Not preloading " + source.getUri()
+                    + ", too many players are prepared ahead already");
+            return;
+        }
+        mPreloaded.put(source, preloaded);
+    }
+
+    /**
+     * Starts preparing a player for a source without keeping track of it, e.g. for the next item of a
+     * playlist. The caller owns the returned player and must either adopt or release it. Returns null
+     * if {@link #MAX_PREPARED_AHEAD} players are prepared already.
+     */
+    public PreloadedPlayer prepare(final Context context, final VideoSource source) {
+        if (mPreparedAhead >= MAX_PREPARED_AHEAD) {
+            return null;
+        }
+        mPreparedAhead++;
+        PreloadedPlayer preloaded = new PreloadedPlayer(context, source, MediaPlayerPool.getInstance().acquire());
+        preloaded.mRequest = VideoSourceResolver.getInstance().resolve(context, source, preloaded);
+        return preloaded;
+    }
+
+    public void cancel(final VideoSource source) {
+        PreloadedPlayer preloaded = mPreloaded.remove(source);
+        if (preloaded != null) {
+            preloaded.release();
+        }
+    }
+
+    /**
+     * Removes and returns the player preloaded for a source, or null if there is none. The caller takes
+     * over the player and must replace its listeners. Sources that are still being resolved are
+     * cancelled instead, since the caller can resolve them just as quickly itself.
+     */
+    public PreloadedPlayer take(final VideoSource source) {
+        PreloadedPlayer preloaded = mPreloaded.remove(source);
+        if (preloaded != null && preloaded.mRequest != null) {
+            preloaded.release();
+            return null;
+        }
+        return preloaded;
+    }
+
+    public void setMaxPreloaded(final int maxPreloaded) {
+        mMaxPreloaded = Math.max(0, maxPreloaded);
+        trimToSize(mMaxPreloaded);
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(final int maxSize) {
+        Iterator<Map.Entry<VideoSource, PreloadedPlayer>> iterator = mPreloaded.entrySet().iterator();
+        while (mPreloaded.size() > maxSize && iterator.hasNext()) {
+            PreloadedPlayer preloaded = iterator.next().getValue();
+            iterator.remove();
+            preloaded.release();
+        }
+    }
+
+    public class PreloadedPlayer implements VideoSourceResolver.Callback, MediaPlayer.OnPreparedListener,
+            MediaPlayer.OnErrorListener {
+
+        private final Context mContext;
+        private final VideoSource mSource;
+        private final MediaPlayer mPlayer;
+        private VideoSourceResolver.Request mRequest = null;
+        private VideoCacheProxy.SessionHandle mSession = null;
+        private boolean mPrepared = false;
+        private boolean mReleased = false;
+
+        private PreloadedPlayer(final Context context, final VideoSource source, final MediaPlayer player) {
+            mContext = context;
+            mSource = source;
+            mPlayer = player;
+        }
+
+        /**
+         * Hands the player over to a view, which from then on counts it against its
+         * {@link DecoderGovernor} slot and must replace its listeners.
+         */
+        public MediaPlayer adopt() {
+            if (!mReleased) {
+                mReleased = true;
+                mPreparedAhead--;
+            }
+            return mPlayer;
+        }
+
+        /**
+         * Returns the proxy session serving the player's source, if any, which the caller closes once
+         * it is done with the adopted player.
+         */
+        public VideoCacheProxy.SessionHandle takeSession() {
+            VideoCacheProxy.SessionHandle session = mSession;
+            mSession = null;
+            return session;
+        }
+
+        public boolean isPrepared() {
+            return mPrepared;
+        }
+
+        public void release() {
+            if (mReleased) {
+                return;
+            }
+            mReleased = true;
+            mPreparedAhead--;
+            if (mRequest != null) {
+                mRequest.cancel();
+                mRequest = null;
+            }
+            MediaPlayerPool.getInstance().release(mPlayer);
+            if (mSession != null) {
+                mSession.close();
+                mSession = null;
+            }
+        }
+
+        @Override
+        public void onResolved(ResolvedVideoSource resolvedSource) {
+            mRequest = null;
+            try {
+                resolvedSource.setDataSource(mContext, mPlayer);
+                mSession = resolvedSource.takeSession();
+            } catch (Exception e) {
+                onError(e);
+                return;
+            } finally {
+                resolvedSource.close();
+            }
+            mPlayer.setOnPreparedListener(this);
+            mPlayer.setOnErrorListener(this);
+            mPlayer.prepareAsync();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            mRequest = null;
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Unable to preload " + mSource.getUri(), e);
+            if (mPreloaded.get(mSource) == this) {
+                cancel(mSource);
+            }
+        }
+
+        @Override
+        public void onPrepared(MediaPlayer mp) {
+            mPrepared = true;
+        }
+
+        @Override
+        public boolean onError(MediaPlayer mp, int what, int extra) {
+            if (mPreloaded.get(mSource) == this) {
+                cancel(mSource);
+            }
+            return true;
+        }
+    }
+}
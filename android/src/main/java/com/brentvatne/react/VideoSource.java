@@ -0,0 +1,317 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable description of a video source as passed in the src prop. Two sources are equal when they
+ * would load the same media, which lets prepared players be matched to the views that ask for them.
+ *
+ * Local sources may set an offset and length to play a part of a file, e.g. a video stored in an
+ * expansion file or in a bundle of packed assets. Such sources are played from a file descriptor,
+ * without extracting the video first.
+ *
+ * Network sources may set request headers, which are sent along with the cookies of the source. Their
+ * values must be strings.
+ */
+public class VideoSource {
+
+    public static final String SCHEME_ASSET = "asset://";
+    public static final long UNKNOWN_LENGTH = -1;
+
+    // Looking up resources by name goes through reflection, so the ids are only looked up once.
+    private static final Map<String, Integer> sResourceIds = new ConcurrentHashMap<String, Integer>();
+
+    private final String mUri;
+    private final String mType;
+    private final boolean mIsNetwork;
+    private final boolean mIsAsset;
+    private final boolean mCache;
+    private final long mOffset;
+    private final long mLength;
+    private final Map<String, String> mHeaders;
+
+    public VideoSource(final String uri, final String type, final boolean isNetwork, final boolean isAsset) {
+        this(uri, type, isNetwork, isAsset, false);
+    }
+
+    public VideoSource(final String uri, final String type, final boolean isNetwork, final boolean isAsset,
+                       final boolean cache) {
+        this(uri, type, isNetwork, isAsset, cache, 0, UNKNOWN_LENGTH);
+    }
+
+    public VideoSource(final String uri, final String type, final boolean isNetwork, final boolean isAsset,
+                       final boolean cache, final long offset, final long length) {
+        this(uri, type, isNetwork, isAsset, cache, offset, length, Collections.<String, String>emptyMap());
+    }
+
+    public VideoSource(final String uri, final String type, final boolean isNetwork, final boolean isAsset,
+                       final boolean cache, final long offset, final long length, final Map<String, String> headers) {
+        mUri = uri;
+        mType = type;
+        mIsNetwork = isNetwork;
+        mIsAsset = isAsset;
+        mCache = cache;
+        mOffset = Math.max(0, offset);
+        mLength = length < 0 ? UNKNOWN_LENGTH : length;
+        mHeaders = headers;
+    }
+
+    public static VideoSource fromReadableMap(final ReadableMap src) {
+        return new VideoSource(
+                src.getString(ReactVideoViewManager.PROP_SRC_URI),
+                src.getString(ReactVideoViewManager.PROP_SRC_TYPE),
+                src.getBoolean(ReactVideoViewManager.PROP_SRC_IS_NETWORK),
+                src.getBoolean(ReactVideoViewManager.PROP_SRC_IS_ASSET),
+                src.hasKey(ReactVideoViewManager.PROP_SRC_CACHE) && src.getBoolean(ReactVideoViewManager.PROP_SRC_CACHE),
+                src.hasKey(ReactVideoViewManager.PROP_SRC_OFFSET)
+                        ? (long) src.getDouble(ReactVideoViewManager.PROP_SRC_OFFSET) : 0,
+                src.hasKey(ReactVideoViewManager.PROP_SRC_LENGTH)
+                        ? (long) src.getDouble(ReactVideoViewManager.PROP_SRC_LENGTH) : UNKNOWN_LENGTH,
+                src.hasKey(ReactVideoViewManager.PROP_SRC_HEADERS) && !src.isNull(ReactVideoViewManager.PROP_SRC_HEADERS)
+                        ? toHeaders(src.getMap(ReactVideoViewManager.PROP_SRC_HEADERS))
+                        : Collections.<String, String>emptyMap()
+        );
+    }
+
+    /**
+     * Returns the headers of a source. Throws an IllegalArgumentException naming the first header
+     * whose value isn't a string.
+     */
+    private static Map<String, String> toHeaders(final ReadableMap map) {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        ReadableMapKeySetIterator iterator = map.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String name = iterator.nextKey();
+            ReadableType type = map.getType(name);
+            if (type != ReadableType.String) {
+                throw new IllegalArgumentException("Value of header " + name + " must be a string, got "
+                        + describe(map, name, type));
+            }
+            headers.put(name, map.getString(name));
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    private static String describe(final ReadableMap map, final String name, final ReadableType type) {
+        switch (type) {
+            case Number:
+                return "number " + map.getDouble(name);
+            case Boolean:
+                return "boolean " + map.getBoolean(name);
+            case Null:
+                return "null";
+            default:
+                return type.toString().toLowerCase(Locale.US);
+        }
+    }
+
+    public String getUri() {
+        return mUri;
+    }
+
+    public String getType() {
+        return mType;
+    }
+
+    public boolean isNetwork() {
+        return mIsNetwork;
+    }
+
+    public boolean isAsset() {
+        return mIsAsset;
+    }
+
+    public long getOffset() {
+        return mOffset;
+    }
+
+    public long getLength() {
+        return mLength;
+    }
+
+    /**
+     * Returns a string that identifies the media of this source, for use as a cache key. Unlike the
+     * uri alone it tells apart videos packed into the same file.
+     */
+    public String getMediaKey() {
+        if (mOffset == 0 && mLength == UNKNOWN_LENGTH) {
+            return mUri;
+        }
+        return mUri + "#" + mOffset + "+" + mLength;
+    }
+
+    /**
+     * Returns whether this source should be played through the {@link VideoCacheProxy}. HLS playlists
+     * are never cached since the media they reference by relative url would not resolve through it.
+     */
+    public boolean isCached() {
+        return mCache && mIsNetwork && !"m3u8".equals(mType);
+    }
+
+    /**
+     * Returns the headers to send with requests for this network source, i.e. the cookies set for its
+     * url by WebViews inside the same app, and the headers of the source, which take precedence. May
+     * block on the cookie storage. The returned map must not be modified.
+     */
+    public Map<String, String> getRequestHeaders() {
+        long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_REQUEST_HEADERS);
+        try {
+            Map<String, String> cookieHeaders = VideoHttp.getCookieHeaders(mUri);
+            if (mHeaders.isEmpty()) {
+                return cookieHeaders;
+            }
+            Map<String, String> headers = new LinkedHashMap<String, String>(cookieHeaders);
+            headers.putAll(mHeaders);
+            return headers;
+        } finally {
+            VideoTrace.endSection(VideoTrace.SECTION_REQUEST_HEADERS, VideoTrace.NO_TAG, traceStart);
+        }
+    }
+
+    /**
+     * Looks up everything needed to set this source on a player. This may block on cookie storage,
+     * resources, content providers or the file system, so it should be called off the UI thread.
+     * Network sources that have been downloaded with {@link VideoDownloads} are played from the
+     * downloaded file.
+     */
+    public ResolvedVideoSource resolve(final Context context) throws IOException {
+        File download = mIsNetwork ? VideoDownloads.findCompletedFile(context, mUri) : null;
+        if (download != null) {
+            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(download, ParcelFileDescriptor.MODE_READ_ONLY);
+            return ResolvedVideoSource.forFileDescriptor(
+                    new AssetFileDescriptor(pfd, 0, AssetFileDescriptor.UNKNOWN_LENGTH));
+        } else if (mIsNetwork) {
+            Uri parsedUrl = Uri.parse(mUri);
+            Map<String, String> headers = getRequestHeaders();
+
+            if (isCached()) {
+                try {
+                    // The proxy forwards the headers above to the origin.
+                    parsedUrl = Uri.parse(VideoCacheProxy.getInstance(context).getProxyUrl(mUri));
+                } catch (IOException e) {
+                    Log.w(ReactVideoViewManager.REACT_CLASS, "Video cache unavailable, streaming from origin", e);
+                }
+            }
+
+            return ResolvedVideoSource.forUri(parsedUrl, headers);
+        } else if (mIsAsset) {
+            if (mUri.startsWith("content://")) {
+                AssetFileDescriptor afd = context.getContentResolver().openAssetFileDescriptor(Uri.parse(mUri), "r");
+                if (afd == null) {
+                    throw new IOException("Unable to open " + mUri);
+                }
+                return ResolvedVideoSource.forFileDescriptor(slice(afd));
+            } else if (mUri.startsWith(SCHEME_ASSET)) {
+                // Only works for assets stored uncompressed, which is how aapt stores videos by default.
+                AssetFileDescriptor afd = context.getAssets().openFd(mUri.substring(SCHEME_ASSET.length()));
+                return ResolvedVideoSource.forFileDescriptor(slice(afd));
+            } else if (mUri.startsWith("file://")) {
+                File file = new File(Uri.parse(mUri).getPath());
+                ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+                return ResolvedVideoSource.forFileDescriptor(slice(
+                        new AssetFileDescriptor(pfd, 0, AssetFileDescriptor.UNKNOWN_LENGTH)));
+            } else {
+                return ResolvedVideoSource.forPath(mUri);
+            }
+        } else {
+            AssetFileDescriptor afd = context.getResources().openRawResourceFd(getResourceId(context));
+            if (afd == null) {
+                throw new IOException("Raw resource not found: " + mUri);
+            }
+            return ResolvedVideoSource.forFileDescriptor(afd);
+        }
+    }
+
+    private int getResourceId(final Context context) throws IOException {
+        Integer resourceId = sResourceIds.get(mUri);
+        if (resourceId == null) {
+            resourceId = context.getResources().getIdentifier(
+                    mUri,
+                    "raw",
+                    context.getPackageName()
+            );
+            if (resourceId == 0) {
+                throw new IOException("Raw resource not found: " + mUri);
+            }
+            sResourceIds.put(mUri, resourceId);
+        }
+        return resourceId;
+    }
+
+    /**
+     * Narrows the descriptor down to the offset and length of this source. The descriptor is closed
+     * if they don't fit in it.
+     */
+    private AssetFileDescriptor slice(final AssetFileDescriptor afd) throws IOException {
+        if (mOffset == 0 && mLength == UNKNOWN_LENGTH) {
+            return afd;
+        }
+        long available = afd.getLength();
+        if (available >= 0 && (mOffset > available || (mLength != UNKNOWN_LENGTH && mOffset + mLength > available))) {
+            afd.close();
+            throw new IOException(mUri + " is too short for offset " + mOffset + " and length " + mLength);
+        }
+        long length = mLength;
+        if (length == UNKNOWN_LENGTH) {
+            length = available >= 0 ? available - mOffset : AssetFileDescriptor.UNKNOWN_LENGTH;
+        }
+        return new AssetFileDescriptor(afd.getParcelFileDescriptor(), afd.getStartOffset() + mOffset, length);
+    }
+
+    public WritableMap toWritableMap() {
+        WritableMap src = VideoArguments.createMap();
+        src.putString(ReactVideoViewManager.PROP_SRC_URI, mUri);
+        src.putString(ReactVideoViewManager.PROP_SRC_TYPE, mType);
+        src.putBoolean(ReactVideoViewManager.PROP_SRC_IS_NETWORK, mIsNetwork);
+        return src;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VideoSource)) {
+            return false;
+        }
+        VideoSource other = (VideoSource) o;
+        return mIsNetwork == other.mIsNetwork
+                && mIsAsset == other.mIsAsset
+                && mCache == other.mCache
+                && mOffset == other.mOffset
+                && mLength == other.mLength
+                && (mUri == null ? other.mUri == null : mUri.equals(other.mUri))
+                && (mType == null ? other.mType == null : mType.equals(other.mType))
+                && mHeaders.equals(other.mHeaders);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mUri != null ? mUri.hashCode() : 0;
+        result = 31 * result + (mType != null ? mType.hashCode() : 0);
+        result = 31 * result + (mIsNetwork ? 1 : 0);
+        result = 31 * result + (mIsAsset ? 1 : 0);
+        result = 31 * result + (mCache ? 1 : 0);
+        result = 31 * result + (int) (mOffset ^ (mOffset >>> 32));
+        result = 31 * result + (int) (mLength ^ (mLength >>> 32));
+        result = 31 * result + mHeaders.hashCode();
+        return result;
+    }
+}
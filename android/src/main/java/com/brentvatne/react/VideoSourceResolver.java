@@ -0,0 +1,103 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Resolves {@link VideoSource}s on a small background executor and delivers the result on the UI
+ * thread, keeping cookie lookups, resource lookups, file opening and the work of {@link VideoBackend}s
+ * off the main thread.
+ */
+public class VideoSourceResolver {
+
+    private static final int THREAD_COUNT = 2;
+
+    private static VideoSourceResolver sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "VideoSourceResolver");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public interface Callback {
+        void onResolved(ResolvedVideoSource resolvedSource);
+
+        void onError(Exception e);
+    }
+
+    public static synchronized VideoSourceResolver getInstance() {
+        if (sInstance == null) {
+            sInstance = new VideoSourceResolver();
+        }
+        return sInstance;
+    }
+
+    public Request resolve(final Context context, final VideoSource source, final Callback callback) {
+        Request request = new Request(context, source, callback);
+        mExecutor.execute(request);
+        return request;
+    }
+
+    /**
+     * A pending resolution. Once cancelled, its callback is never invoked.
+     */
+    public class Request implements Runnable {
+
+        private final Context mContext;
+        private final VideoSource mSource;
+        private final Callback mCallback;
+        private volatile boolean mCancelled = false;
+
+        private Request(final Context context, final VideoSource source, final Callback callback) {
+            mContext = context;
+            mSource = source;
+            mCallback = callback;
+        }
+
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+
+            ResolvedVideoSource resolvedSource = null;
+            Exception error = null;
+            try {
+                resolvedSource = VideoBackends.forSource(mSource).resolve(mContext, mSource);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            final ResolvedVideoSource result = resolvedSource;
+            final Exception resultError = error;
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancelled) {
+                        if (result != null) {
+                            result.close();
+                        }
+                    } else if (result != null) {
+                        mCallback.onResolved(result);
+                    } else {
+                        mCallback.onError(resultError);
+                    }
+                }
+            });
+        }
+    }
+}
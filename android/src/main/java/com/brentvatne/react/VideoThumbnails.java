@@ -0,0 +1,414 @@
+package com.brentvatne.react;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.util.Base64;
+import android.util.LruCache;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Extracts frames, and sprite sheets of frames at regular intervals, from the same sources the src
+ * prop accepts. Extraction runs on a small background pool; extracted frames are kept in a memory
+ * cache bounded in bytes, and the resulting JPEGs in an optional disk cache. Concurrent requests for
+ * the same image share a single extraction.
+ *
+ * Results are delivered on a background thread as maps with the uri of the image, a file:// uri when
+ * the disk cache is enabled and a data: uri otherwise, and its size.
+ */
+public class VideoThumbnails {
+
+    public static final String PROP_URI = "uri";
+    public static final String PROP_WIDTH = "width";
+    public static final String PROP_HEIGHT = "height";
+    public static final String PROP_COLUMNS = "columns";
+    public static final String PROP_ROWS = "rows";
+    public static final String PROP_FRAME_WIDTH = "frameWidth";
+    public static final String PROP_FRAME_HEIGHT = "frameHeight";
+    public static final String PROP_TIMES = "times";
+
+    public static final long DEFAULT_MAX_DISK_BYTES = 32L * 1024 * 1024;
+    // 16 MB as RGB_565, on top of the frames and the JPEG being encoded.
+    public static final long MAX_SPRITE_SHEET_PIXELS = 8L * 1024 * 1024;
+
+    private static final int THREAD_COUNT = 2;
+    private static final int JPEG_QUALITY = 80;
+    private static final String DISK_DIRECTORY = "react-native-video-thumbnails";
+
+    private static VideoThumbnails sInstance;
+
+    public interface Callback {
+        void onResult(WritableMap result);
+
+        void onError(Exception e);
+    }
+
+    private final Context mContext;
+    private final File mDiskDirectory;
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final Map<String, List<Callback>> mPending = new HashMap<String, List<Callback>>();
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "VideoThumbnails");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private volatile boolean mDiskCacheEnabled = true;
+    private volatile long mMaxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+
+    public static synchronized VideoThumbnails getInstance(final Context context) {
+        if (sInstance == null) {
+            sInstance = new VideoThumbnails(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Frees the frames cached in memory, e.g. when memory runs low. Does nothing if no frame has been
+     * requested yet.
+     */
+    public static synchronized void clearMemoryCache() {
+        if (sInstance != null) {
+            sInstance.mMemoryCache.evictAll();
+        }
+    }
+
+    private VideoThumbnails(final Context context) {
+        mContext = context;
+        mDiskDirectory = new File(context.getCacheDir(), DISK_DIRECTORY);
+        // An eighth of the heap at most; frames are cheap to extract again.
+        int maxMemoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, 16 * 1024 * 1024);
+        mMemoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    public void setDiskCacheEnabled(final boolean enabled) {
+        mDiskCacheEnabled = enabled;
+    }
+
+    public void setMaxDiskBytes(final long maxBytes) {
+        mMaxDiskBytes = Math.max(0, maxBytes);
+    }
+
+    public void clear() {
+        mMemoryCache.evictAll();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                trimDiskCache(0);
+            }
+        });
+    }
+
+    /**
+     * Extracts the frame at timeMs, scaled to width if it is positive. Exact frames are decoded up to
+     * the requested time; otherwise the closest keyframe is used, which is much faster.
+     */
+    public void getFrame(final VideoSource source, final long timeMs, final int width, final boolean exact,
+                         final Callback callback) {
+        final String key = frameKey(source, timeMs, width, exact);
+        enqueue(key, callback, new Task() {
+            @Override
+            public WritableMap run(Retriever retriever) throws IOException {
+                File file = getDiskFile(key);
+                if (file != null && file.exists()) {
+                    return toResult(file);
+                }
+                return encode(key, retriever.getFrame(source, timeMs, width, exact));
+            }
+        });
+    }
+
+    /**
+     * Extracts count keyframes, starting at startMs and intervalMs apart, scaled to frameWidth and laid
+     * out left to right and top to bottom in rows of the given number of columns. Fails with an
+     * IllegalArgumentException if the sheet would have more than {@link #MAX_SPRITE_SHEET_PIXELS}.
+     */
+    public void getSpriteSheet(final VideoSource source, final long startMs, final long intervalMs, final int count,
+                               final int frameWidth, final int columns, final Callback callback) {
+        final String key = VideoCache.keyFor(source.getMediaKey() + "#sprite:" + startMs + "+" + intervalMs + "x"
+                + count + "@" + frameWidth + "/" + columns);
+        enqueue(key, callback, new Task() {
+            @Override
+            public WritableMap run(Retriever retriever) throws IOException {
+                int rows = (count + columns - 1) / columns;
+                // Rejected before extracting anything if even frames of a single pixel's height don't fit.
+                checkSpriteSheetSize(frameWidth, columns, 1, rows);
+                File file = getDiskFile(key);
+                WritableMap result;
+                Bitmap sheet = null;
+                int frameHeight = 0;
+                if (file != null && file.exists()) {
+                    result = toResult(file);
+                    frameHeight = result.getInt(PROP_HEIGHT) / rows;
+                } else {
+                    Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+                    Canvas canvas = null;
+                    for (int i = 0; i < count; i++) {
+                        Bitmap frame = retriever.getFrame(source, startMs + i * intervalMs, frameWidth, false);
+                        if (sheet == null) {
+                            frameHeight = frame.getHeight();
+                            checkSpriteSheetSize(frameWidth, columns, frameHeight, rows);
+                            sheet = Bitmap.createBitmap(frameWidth * columns, frameHeight * rows, Bitmap.Config.RGB_565);
+                            canvas = new Canvas(sheet);
+                        }
+                        int left = (i % columns) * frameWidth;
+                        int top = (i / columns) * frameHeight;
+                        canvas.drawBitmap(frame, null, new Rect(left, top, left + frameWidth, top + frameHeight), paint);
+                    }
+                    result = encode(key, sheet);
+                    sheet.recycle();
+                }
+
+                WritableArray times = VideoArguments.createArray();
+                for (int i = 0; i < count; i++) {
+                    times.pushDouble((startMs + i * intervalMs) / 1000.0);
+                }
+                result.putInt(PROP_COLUMNS, columns);
+                result.putInt(PROP_ROWS, rows);
+                result.putInt(PROP_FRAME_WIDTH, frameWidth);
+                result.putInt(PROP_FRAME_HEIGHT, frameHeight);
+                result.putArray(PROP_TIMES, times);
+                return result;
+            }
+        });
+    }
+
+    private static void checkSpriteSheetSize(final int frameWidth, final int columns, final int frameHeight,
+                                             final int rows) {
+        long width = (long) frameWidth * columns;
+        long height = (long) frameHeight * rows;
+        if (width * height > MAX_SPRITE_SHEET_PIXELS) {
+            throw new IllegalArgumentException("A sprite sheet of " + width + "x" + height
+                    + " pixels exceeds the maximum of " + MAX_SPRITE_SHEET_PIXELS + " pixels");
+        }
+    }
+
+    private interface Task {
+        WritableMap run(Retriever retriever) throws IOException;
+    }
+
+    /**
+     * Runs the task unless the same key is already being produced, in which case the callback waits
+     * for that result instead.
+     */
+    private void enqueue(final String key, final Callback callback, final Task task) {
+        synchronized (mPending) {
+            List<Callback> callbacks = mPending.get(key);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<Callback>();
+            callbacks.add(callback);
+            mPending.put(key, callbacks);
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                WritableMap result = null;
+                Exception error = null;
+                Retriever retriever = new Retriever();
+                try {
+                    result = task.run(retriever);
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    retriever.release();
+                }
+
+                List<Callback> callbacks;
+                synchronized (mPending) {
+                    callbacks = mPending.remove(key);
+                }
+                for (Callback callback : callbacks) {
+                    if (error != null) {
+                        callback.onError(error);
+                    } else {
+                        // Each callback hands its map to the bridge, which consumes it.
+                        WritableMap copy = VideoArguments.createMap();
+                        copy.merge(result);
+                        callback.onResult(copy);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens a source at most once per task, and serves frames from the memory cache when it can.
+     */
+    private class Retriever {
+
+        private MediaMetadataRetriever mRetriever;
+
+        private Bitmap getFrame(final VideoSource source, final long timeMs, final int width, final boolean exact)
+                throws IOException {
+            String key = frameKey(source, timeMs, width, exact);
+            Bitmap frame = mMemoryCache.get(key);
+            if (frame != null) {
+                return frame;
+            }
+
+            if (mRetriever == null) {
+                if (HlsAdaptiveBackend.TYPE_HLS.equals(source.getType())) {
+                    // MediaMetadataRetriever can only open single files.
+                    throw new IOException("Frames can't be extracted from HLS sources");
+                }
+                mRetriever = new MediaMetadataRetriever();
+                ResolvedVideoSource resolvedSource = source.resolve(mContext);
+                try {
+                    resolvedSource.setDataSource(mContext, mRetriever);
+                } catch (RuntimeException e) {
+                    throw new IOException("Unable to open " + source.getUri(), e);
+                } finally {
+                    resolvedSource.close();
+                }
+            }
+
+            frame = mRetriever.getFrameAtTime(timeMs * 1000, exact
+                    ? MediaMetadataRetriever.OPTION_CLOSEST : MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            if (frame == null) {
+                throw new IOException("No frame at " + timeMs + "ms in " + source.getUri());
+            }
+            if (width > 0 && width != frame.getWidth()) {
+                int height = Math.max(1, Math.round((float) frame.getHeight() * width / frame.getWidth()));
+                Bitmap scaled = Bitmap.createScaledBitmap(frame, width, height, true);
+                if (scaled != frame) {
+                    frame.recycle();
+                }
+                frame = scaled;
+            }
+            mMemoryCache.put(key, frame);
+            return frame;
+        }
+
+        private void release() {
+            if (mRetriever != null) {
+                mRetriever.release();
+                mRetriever = null;
+            }
+        }
+    }
+
+    /**
+     * Writes a bitmap to the disk cache, or to a data: uri when it is disabled.
+     */
+    private WritableMap encode(final String key, final Bitmap bitmap) throws IOException {
+        File file = getDiskFile(key);
+        if (file == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            WritableMap result = VideoArguments.createMap();
+            result.putString(PROP_URI, "data:image/jpeg;base64," + Base64.encodeToString(out.toByteArray(), Base64.NO_WRAP));
+            result.putInt(PROP_WIDTH, bitmap.getWidth());
+            result.putInt(PROP_HEIGHT, bitmap.getHeight());
+            return result;
+        }
+
+        if (!mDiskDirectory.exists() && !mDiskDirectory.mkdirs()) {
+            throw new IOException("Unable to create " + mDiskDirectory);
+        }
+        File tempFile = new File(mDiskDirectory, key + ".tmp");
+        OutputStream out = new FileOutputStream(tempFile);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to write " + file);
+        }
+        trimDiskCache(mMaxDiskBytes);
+        return toResult(file);
+    }
+
+    private File getDiskFile(final String key) {
+        return mDiskCacheEnabled ? new File(mDiskDirectory, key + ".jpg") : null;
+    }
+
+    private WritableMap toResult(final File file) {
+        // Mark the file as recently used for trimDiskCache.
+        file.setLastModified(System.currentTimeMillis());
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        WritableMap result = VideoArguments.createMap();
+        result.putString(PROP_URI, "file://" + file.getPath());
+        result.putInt(PROP_WIDTH, options.outWidth);
+        result.putInt(PROP_HEIGHT, options.outHeight);
+        return result;
+    }
+
+    /**
+     * Deletes the least recently used images until the disk cache fits in maxBytes.
+     */
+    private synchronized void trimDiskCache(final long maxBytes) {
+        File[] files = mDiskDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        List<File> images = new ArrayList<File>(files.length);
+        for (File file : files) {
+            // Skip images that are still being written.
+            if (file.getName().endsWith(".jpg")) {
+                images.add(file);
+                size += file.length();
+            }
+        }
+        if (size <= maxBytes) {
+            return;
+        }
+        Collections.sort(images, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return lhs.lastModified() < rhs.lastModified() ? -1 : (lhs.lastModified() == rhs.lastModified() ? 0 : 1);
+            }
+        });
+        for (File file : images) {
+            if (size <= maxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private static String frameKey(final VideoSource source, final long timeMs, final int width, final boolean exact) {
+        return VideoCache.keyFor(source.getMediaKey() + "#" + timeMs + "@" + width + (exact ? "!" : ""));
+    }
+}
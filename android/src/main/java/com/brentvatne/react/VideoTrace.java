@@ -0,0 +1,198 @@
+package com.brentvatne.react;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in tracing of the video pipeline. While enabled, traced sections show up in systrace and
+ * Perfetto captures, and are also recorded as timed spans in a fixed size ring buffer that can be
+ * dumped in the Chrome trace event format for offline analysis. While disabled, every call returns
+ * after reading a single flag.
+ *
+ * Sections are traced as follows, so that nothing is allocated per span:
+ *
+ * <pre>
+ * long traceStart = VideoTrace.beginSection(VideoTrace.SECTION_APPLY_MODIFIERS);
+ * try {
+ *     ...
+ * } finally {
+ *     VideoTrace.endSection(VideoTrace.SECTION_APPLY_MODIFIERS, getId(), traceStart);
+ * }
+ * </pre>
+ *
+ * May be used from any thread.
+ */
+public class VideoTrace {
+
+    public static final String SECTION_SET_SRC = "RCTVideo.setSrc";
+    public static final String SECTION_REQUEST_HEADERS = "RCTVideo.requestHeaders";
+    public static final String SECTION_SET_DATA_SOURCE = "RCTVideo.setDataSource";
+    public static final String SECTION_PREPARE = "RCTVideo.prepare";
+    public static final String SECTION_APPLY_MODIFIERS = "RCTVideo.applyModifiers";
+    public static final String SECTION_PROGRESS_TICK = "RCTVideo.progressTick";
+    public static final String SECTION_EMIT_PROGRESS = "RCTVideo.emitProgress";
+    public static final String SECTION_INFO = "RCTVideo.onInfo";
+
+    // Tag of spans that don't belong to a single view.
+    public static final int NO_TAG = -1;
+
+    public static final int CAPACITY = 2048;
+
+    private static final long NOT_TRACED = -1;
+
+    private static volatile boolean sEnabled = false;
+
+    // Spans in order of completion; the oldest is overwritten once the buffer is full.
+    private static final String[] sNames = new String[CAPACITY];
+    private static final String[] sThreads = new String[CAPACITY];
+    private static final int[] sTags = new int[CAPACITY];
+    private static final long[] sStarts = new long[CAPACITY];
+    private static final long[] sDurations = new long[CAPACITY];
+    private static int sNext = 0;
+    private static int sSize = 0;
+
+    private static Method sBeginAsyncSection;
+    private static Method sEndAsyncSection;
+    private static boolean sAsyncSectionsUnavailable = false;
+
+    public static void setEnabled(final boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Opens a section on the current thread. Returns the start time to pass to {@link #endSection},
+     * or a negative value if tracing is disabled.
+     */
+    public static long beginSection(final String name) {
+        if (!sEnabled) {
+            return NOT_TRACED;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Closes the innermost section opened on the current thread, and records it for the view with
+     * the given tag.
+     */
+    public static void endSection(final String name, final int tag, final long start) {
+        if (start < 0) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        record(name, tag, start);
+    }
+
+    /**
+     * Opens a section that may end on another thread or in a later callback, such as preparing a
+     * player. Sections with the same name that overlap need distinct cookies. Returns the start time
+     * to pass to {@link #endAsyncSection}, or a negative value if tracing is disabled.
+     */
+    public static long beginAsyncSection(final String name, final int cookie) {
+        if (!sEnabled) {
+            return NOT_TRACED;
+        }
+        invokeAsyncSection(true, name, cookie);
+        return System.nanoTime();
+    }
+
+    public static void endAsyncSection(final String name, final int cookie, final int tag, final long start) {
+        if (start < 0) {
+            return;
+        }
+        invokeAsyncSection(false, name, cookie);
+        record(name, tag, start);
+    }
+
+    public static synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            sNames[i] = null;
+            sThreads[i] = null;
+        }
+        sNext = 0;
+        sSize = 0;
+    }
+
+    /**
+     * Returns the recorded spans as a Chrome trace event JSON object, which chrome://tracing and
+     * Perfetto can open. Times are in microseconds; the tag of a view's spans is in their args.
+     */
+    public static synchronized String dump() {
+        List<String> threads = new ArrayList<String>();
+        StringBuilder json = new StringBuilder(64 + sSize * 128);
+        json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+        int first = (sNext - sSize + CAPACITY) % CAPACITY;
+        for (int i = 0; i < sSize; i++) {
+            int index = (first + i) % CAPACITY;
+            int tid = threads.indexOf(sThreads[index]);
+            if (tid == -1) {
+                tid = threads.size();
+                threads.add(sThreads[index]);
+            }
+            json.append("{\"name\":").append(JSONObject.quote(sNames[index]))
+                    .append(",\"ph\":\"X\",\"pid\":0,\"tid\":").append(tid)
+                    .append(",\"ts\":").append(sStarts[index] / 1000.0)
+                    .append(",\"dur\":").append(sDurations[index] / 1000.0);
+            if (sTags[index] != NO_TAG) {
+                json.append(",\"args\":{\"tag\":").append(sTags[index]).append('}');
+            }
+            json.append("},");
+        }
+        for (int tid = 0; tid < threads.size(); tid++) {
+            json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":").append(tid)
+                    .append(",\"args\":{\"name\":").append(JSONObject.quote(threads.get(tid))).append("}},");
+        }
+
+        if (json.charAt(json.length() - 1) == ',') {
+            json.setLength(json.length() - 1);
+        }
+        return json.append("]}").toString();
+    }
+
+    private static synchronized void record(final String name, final int tag, final long start) {
+        sNames[sNext] = name;
+        sThreads[sNext] = Thread.currentThread().getName();
+        sTags[sNext] = tag;
+        sStarts[sNext] = start;
+        sDurations[sNext] = System.nanoTime() - start;
+        sNext = (sNext + 1) % CAPACITY;
+        sSize = Math.min(sSize + 1, CAPACITY);
+    }
+
+    /**
+     * Async sections were added to the public Trace API in Android 10 (API 29), newer than the SDK we
+     * compile against, so they are looked up by reflection. Elsewhere they are only recorded in the
+     * ring buffer.
+     */
+    private static synchronized void invokeAsyncSection(final boolean begin, final String name, final int cookie) {
+        if (Build.VERSION.SDK_INT < 29 || sAsyncSectionsUnavailable) {
+            return;
+        }
+        try {
+            if (sBeginAsyncSection == null) {
+                sBeginAsyncSection = Trace.class.getMethod("beginAsyncSection", String.class, int.class);
+                sEndAsyncSection = Trace.class.getMethod("endAsyncSection", String.class, int.class);
+            }
+            (begin ? sBeginAsyncSection : sEndAsyncSection).invoke(null, name, cookie);
+        } catch (Exception e) {
+            Log.w(ReactVideoViewManager.REACT_CLASS, "Async trace sections unavailable", e);
+            sAsyncSectionsUnavailable = true;
+        }
+    }
+}
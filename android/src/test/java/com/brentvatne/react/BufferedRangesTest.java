@@ -0,0 +1,51 @@
+package com.brentvatne.react;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BufferedRangesTest {
+
+    private static final VideoSource NETWORK_SOURCE =
+            new VideoSource("http://example.com/video.mp4", "mp4", true, false);
+
+    @Test
+    public void fallsBackToBufferedPercentage() {
+        BufferedRanges ranges = new BufferedRanges();
+        ranges.update(NETWORK_SOURCE, 10000, 50);
+
+        assertArrayEquals(new double[]{0, 5}, ranges.takeChanged(), 0);
+        assertEquals(5, ranges.getBufferedEnd(2), 0);
+        assertEquals(6, ranges.getBufferedEnd(6), 0);
+    }
+
+    @Test
+    public void onlyReportsChanges() {
+        BufferedRanges ranges = new BufferedRanges();
+        ranges.update(NETWORK_SOURCE, 10000, 50);
+        ranges.takeChanged();
+
+        ranges.update(NETWORK_SOURCE, 10000, 50);
+        assertNull(ranges.takeChanged());
+
+        ranges.update(NETWORK_SOURCE, 10000, 75);
+        assertArrayEquals(new double[]{0, 7.5}, ranges.takeChanged(), 0);
+        assertNull(ranges.takeChanged());
+    }
+
+    @Test
+    public void reportsNothingBufferedAfterReset() {
+        BufferedRanges ranges = new BufferedRanges();
+        ranges.update(NETWORK_SOURCE, 10000, 50);
+        ranges.takeChanged();
+
+        ranges.reset();
+        assertArrayEquals(new double[0], ranges.takeChanged(), 0);
+        assertEquals(1, ranges.getBufferedEnd(1), 0);
+
+        ranges.update(NETWORK_SOURCE, 10000, 0);
+        assertNull(ranges.takeChanged());
+    }
+}
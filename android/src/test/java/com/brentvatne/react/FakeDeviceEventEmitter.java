@@ -0,0 +1,25 @@
+package com.brentvatne.react;
+
+import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the device events sent to JS.
+ */
+public class FakeDeviceEventEmitter implements RCTDeviceEventEmitter {
+
+    public final List<String> names = new ArrayList<String>();
+    public final List<Object> payloads = new ArrayList<Object>();
+
+    @Override
+    public void emit(final String eventName, final Object data) {
+        names.add(eventName);
+        payloads.add(data);
+    }
+
+    public Object getLastPayload() {
+        return payloads.isEmpty() ? null : payloads.get(payloads.size() - 1);
+    }
+}
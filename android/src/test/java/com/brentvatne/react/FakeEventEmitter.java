@@ -0,0 +1,35 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the view events sent to JS.
+ */
+public class FakeEventEmitter implements RCTEventEmitter {
+
+    public final List<String> names = new ArrayList<String>();
+    public final List<WritableMap> payloads = new ArrayList<WritableMap>();
+
+    @Override
+    public void receiveEvent(final int targetTag, final String eventName, final WritableMap event) {
+        names.add(eventName);
+        payloads.add(event);
+    }
+
+    /**
+     * Returns the payload of the last event with the given name, or null if there was none.
+     */
+    public TestWritableMap getLast(final String eventName) {
+        int index = names.lastIndexOf(eventName);
+        return index < 0 ? null : (TestWritableMap) payloads.get(index);
+    }
+
+    public void clear() {
+        names.clear();
+        payloads.clear();
+    }
+}
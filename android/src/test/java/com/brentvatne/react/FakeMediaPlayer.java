@@ -0,0 +1,133 @@
+package com.brentvatne.react;
+
+import android.media.MediaPlayer;
+
+/**
+ * MediaPlayer that plays nothing. It keeps the state the view asks about and hands the listeners the
+ * view registers to the test, which drives them like the media framework would.
+ */
+public class FakeMediaPlayer extends MediaPlayer {
+
+    private OnPreparedListener mOnPreparedListener;
+    private OnInfoListener mOnInfoListener;
+    private OnErrorListener mOnErrorListener;
+    private OnCompletionListener mOnCompletionListener;
+    private boolean mPlaying = false;
+    private boolean mLooping = false;
+    private int mPosition = 0;
+    private int mDuration = 0;
+    private int mStartCount = 0;
+    private boolean mReleased = false;
+
+    /**
+     * Finishes preparing a source of the given duration.
+     */
+    public void prepared(final int duration) {
+        mDuration = duration;
+        mOnPreparedListener.onPrepared(this);
+    }
+
+    public void info(final int what) {
+        mOnInfoListener.onInfo(this, what, 0);
+    }
+
+    public void error(final int what, final int extra) {
+        mOnErrorListener.onError(this, what, extra);
+    }
+
+    public void completed() {
+        mPlaying = false;
+        mOnCompletionListener.onCompletion(this);
+    }
+
+    public void setCurrentPosition(final int position) {
+        mPosition = position;
+    }
+
+    public int getStartCount() {
+        return mStartCount;
+    }
+
+    public boolean isReleased() {
+        return mReleased;
+    }
+
+    @Override
+    public void setOnPreparedListener(final OnPreparedListener listener) {
+        mOnPreparedListener = listener;
+    }
+
+    @Override
+    public void setOnInfoListener(final OnInfoListener listener) {
+        mOnInfoListener = listener;
+    }
+
+    @Override
+    public void setOnErrorListener(final OnErrorListener listener) {
+        mOnErrorListener = listener;
+    }
+
+    @Override
+    public void setOnCompletionListener(final OnCompletionListener listener) {
+        mOnCompletionListener = listener;
+    }
+
+    @Override
+    public void start() {
+        mPlaying = true;
+        mStartCount++;
+    }
+
+    @Override
+    public void pause() {
+        mPlaying = false;
+    }
+
+    @Override
+    public void stop() {
+        mPlaying = false;
+    }
+
+    @Override
+    public void reset() {
+        mPlaying = false;
+        mPosition = 0;
+        mDuration = 0;
+    }
+
+    @Override
+    public void release() {
+        mPlaying = false;
+        mReleased = true;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mPlaying;
+    }
+
+    @Override
+    public void setLooping(final boolean looping) {
+        mLooping = looping;
+    }
+
+    @Override
+    public boolean isLooping() {
+        return mLooping;
+    }
+
+    @Override
+    public void seekTo(final int position) {
+        mPosition = position;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public int getDuration() {
+        return mDuration;
+    }
+}
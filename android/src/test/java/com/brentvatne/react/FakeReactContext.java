@@ -0,0 +1,101 @@
+package com.brentvatne.react;
+
+import android.content.ContextWrapper;
+
+import com.facebook.react.bridge.CatalystInstance;
+import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ThemedReactContext without a running catalyst instance, so views can be created from it. Work
+ * posted to the JS queue is held until {@link #runJSQueue()}, view events are recorded by a
+ * {@link FakeEventEmitter} and device events by a {@link FakeDeviceEventEmitter}.
+ */
+public class FakeReactContext extends ThemedReactContext {
+
+    private final FakeEventEmitter mEventEmitter = new FakeEventEmitter();
+    private final FakeDeviceEventEmitter mDeviceEventEmitter = new FakeDeviceEventEmitter();
+    private final List<Runnable> mJSQueue = new ArrayList<Runnable>();
+
+    public FakeReactContext() {
+        super(new ReactApplicationContext(new ContextWrapper(null)) {
+            @Override
+            public CatalystInstance getCatalystInstance() {
+                return standIn(CatalystInstance.class);
+            }
+        }, new ContextWrapper(null));
+    }
+
+    public FakeEventEmitter getEventEmitter() {
+        return mEventEmitter;
+    }
+
+    public FakeDeviceEventEmitter getDeviceEventEmitter() {
+        return mDeviceEventEmitter;
+    }
+
+    @Override
+    public <T extends JavaScriptModule> T getJSModule(final Class<T> jsInterface) {
+        if (jsInterface == RCTEventEmitter.class) {
+            return jsInterface.cast(mEventEmitter);
+        }
+        if (jsInterface == RCTDeviceEventEmitter.class) {
+            return jsInterface.cast(mDeviceEventEmitter);
+        }
+        throw new IllegalArgumentException("No fake for " + jsInterface.getName());
+    }
+
+    @Override
+    public void runOnJSQueueThread(final Runnable runnable) {
+        mJSQueue.add(runnable);
+    }
+
+    /**
+     * Runs and clears everything posted to the JS queue so far.
+     */
+    public void runJSQueue() {
+        List<Runnable> queue = new ArrayList<Runnable>(mJSQueue);
+        mJSQueue.clear();
+        for (Runnable runnable : queue) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Returns an implementation of the given interface that does nothing, for the parts of the
+     * catalyst instance a context asks for when it is created. Methods returning an interface return
+     * another stand-in, all others null, zero or false.
+     */
+    private static <T> T standIn(final Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        Class<?> returnType = method.getReturnType();
+                        if (returnType.isInterface()) {
+                            return standIn(returnType);
+                        } else if (returnType == boolean.class) {
+                            return false;
+                        } else if (returnType == int.class) {
+                            return 0;
+                        } else if (returnType == long.class) {
+                            return 0L;
+                        } else if (returnType == float.class) {
+                            return 0f;
+                        } else if (returnType == double.class) {
+                            return 0d;
+                        }
+                        return null;
+                    }
+                }));
+    }
+}
@@ -0,0 +1,134 @@
+package com.brentvatne.react;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HlsAdaptiveBackendTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private static final String MASTER = "#EXTM3U\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=2000000,RESOLUTION=1280x720\n"
+            + "high/index.m3u8\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=500000,RESOLUTION=640x360\n"
+            + "low/index.m3u8\n";
+
+    private TestOrigin mOrigin;
+
+    @Before
+    public void setUp() throws IOException {
+        BandwidthMeter.getInstance().reset();
+        mOrigin = new TestOrigin();
+        mOrigin.put("/master.m3u8", MASTER);
+        mOrigin.put("/low/index.m3u8", mediaPlaylist("low"));
+        mOrigin.put("/high/index.m3u8", mediaPlaylist("high"));
+        mOrigin.put("/low/0.ts", "low0");
+        mOrigin.put("/low/1.ts", "low1");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mOrigin.close();
+        BandwidthMeter.getInstance().reset();
+    }
+
+    @Test
+    public void startsOnLowestRenditionWithoutEstimate() throws IOException {
+        HlsAdaptiveBackend.Session session = HlsAdaptiveBackend.Session.create(mOrigin.url("/master.m3u8"), NO_HEADERS);
+
+        assertEquals(1, mOrigin.getRequestCount("/low/index.m3u8"));
+        assertEquals(0, mOrigin.getRequestCount("/high/index.m3u8"));
+
+        String playlist = serve(session, null);
+        assertTrue(playlist, playlist.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(playlist, playlist.contains("#EXT-X-TARGETDURATION:6\n"));
+        assertTrue(playlist, playlist.contains("#EXTINF:6.000,\nsegment0.ts?session=s&token=t&segment=0\n"));
+        assertTrue(playlist, playlist.contains("#EXTINF:4.500,\nsegment1.ts?session=s&token=t&segment=1\n"));
+        assertTrue(playlist, playlist.endsWith("#EXT-X-ENDLIST\n"));
+    }
+
+    @Test
+    public void servesSegmentsOfCurrentRendition() throws IOException {
+        HlsAdaptiveBackend.Session session = HlsAdaptiveBackend.Session.create(mOrigin.url("/master.m3u8"), NO_HEADERS);
+
+        assertTrue(serve(session, "1").endsWith("\r\n\r\nlow1"));
+        assertTrue(serve(session, "2").startsWith("HTTP/1.1 404"));
+        assertTrue(serve(session, "x").startsWith("HTTP/1.1 404"));
+    }
+
+    @Test
+    public void switchesRenditionsOnlyAtDiscontinuities() throws IOException {
+        String playlist = "#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:6\n"
+                + "#EXTINF:6.000,\n0.ts\n#EXTINF:6.000,\n1.ts\n#EXTINF:6.000,\n2.ts\n#EXT-X-ENDLIST\n";
+        mOrigin.put("/low/index.m3u8", playlist);
+        mOrigin.put("/high/index.m3u8", playlist);
+        mOrigin.put("/high/1.ts", "high1");
+        mOrigin.put("/high/2.ts", "high2");
+        HlsAdaptiveBackend.Session session = HlsAdaptiveBackend.Session.create(mOrigin.url("/master.m3u8"), NO_HEADERS);
+
+        String served = serve(session, null);
+        assertFalse(served, served.contains("#EXT-X-DISCONTINUITY\n#EXTINF:6.000,\nsegment1.ts"));
+        assertTrue(served, served.contains("#EXT-X-DISCONTINUITY\n#EXTINF:6.000,\nsegment2.ts"));
+
+        BandwidthMeter.getInstance().addSample(8 * 1024 * 1024, 1);
+        assertTrue(serve(session, "1").endsWith("\r\n\r\nlow1"));
+        assertTrue(serve(session, "2").endsWith("\r\n\r\nhigh2"));
+    }
+
+    @Test
+    public void rejectsPlaylistsItCannotSwitch() throws IOException {
+        mOrigin.put("/single.m3u8", "#EXTM3U\n#EXT-X-STREAM-INF:BANDWIDTH=500000\nlow/index.m3u8\n");
+        assertCreateFails("/single.m3u8");
+
+        mOrigin.put("/low/index.m3u8", mediaPlaylist("low").replace("#EXT-X-ENDLIST\n", ""));
+        assertCreateFails("/master.m3u8");
+
+        mOrigin.put("/low/index.m3u8", mediaPlaylist("low").replace("#EXT-X-TARGETDURATION:6\n",
+                "#EXT-X-TARGETDURATION:6\n#EXT-X-KEY:METHOD=AES-128,URI=\"key\"\n"));
+        assertCreateFails("/master.m3u8");
+
+        mOrigin.put("/low/index.m3u8", mediaPlaylist("low").replace("#EXT-X-TARGETDURATION:6\n",
+                "#EXT-X-TARGETDURATION:6.0\n"));
+        assertCreateFails("/master.m3u8");
+    }
+
+    private void assertCreateFails(final String path) {
+        try {
+            HlsAdaptiveBackend.Session.create(mOrigin.url(path), NO_HEADERS);
+            fail("Created a session for " + path);
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    private static String mediaPlaylist(final String name) {
+        return "#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:6\n"
+                + "#EXTINF:6.000,\n0.ts\n"
+                + "#EXTINF:4.500,\n1.ts\n"
+                + "#EXT-X-ENDLIST\n";
+    }
+
+    private static String serve(final HlsAdaptiveBackend.Session session, final String segment) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(VideoCacheProxy.PARAM_SESSION, "s");
+        params.put(VideoCacheProxy.PARAM_TOKEN, "t");
+        if (segment != null) {
+            params.put("segment", segment);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.serve(params, NO_HEADERS, out, false);
+        return out.toString("ISO-8859-1");
+    }
+}
@@ -0,0 +1,27 @@
+package com.brentvatne.react;
+
+import org.junit.Test;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static org.junit.Assert.assertEquals;
+
+public class MemoryTrimmerTest {
+
+    @Test
+    public void leavingTheAppIsNoMemoryPressure() {
+        assertEquals(0, MemoryTrimmer.toRunningLevel(TRIM_MEMORY_UI_HIDDEN));
+    }
+
+    @Test
+    public void mapsBackgroundLevelsByUrgency() {
+        assertEquals(TRIM_MEMORY_RUNNING_MODERATE, MemoryTrimmer.toRunningLevel(TRIM_MEMORY_BACKGROUND));
+        assertEquals(TRIM_MEMORY_RUNNING_LOW, MemoryTrimmer.toRunningLevel(TRIM_MEMORY_MODERATE));
+        assertEquals(TRIM_MEMORY_RUNNING_CRITICAL, MemoryTrimmer.toRunningLevel(TRIM_MEMORY_COMPLETE));
+    }
+}
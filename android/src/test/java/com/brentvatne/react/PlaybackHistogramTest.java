@@ -0,0 +1,25 @@
+package com.brentvatne.react;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PlaybackHistogramTest {
+
+    @Test
+    public void countsDurationsInBucketsByUpperBound() {
+        PlaybackHistogram histogram = new PlaybackHistogram();
+        histogram.record(0);
+        histogram.record(100);
+        histogram.record(101);
+        histogram.record(10000);
+        histogram.record(60000);
+
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(1));
+        assertEquals(1, histogram.getBucketCount(6));
+        assertEquals(1, histogram.getBucketCount(7));
+        assertEquals(5, histogram.getCount());
+        assertEquals(60000, histogram.getMax());
+    }
+}
@@ -0,0 +1,97 @@
+package com.brentvatne.react;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProgressBatchTest {
+
+    @Rule
+    public TestArguments mArguments = new TestArguments();
+
+    private FakeReactContext mReactContext;
+    private FakeDeviceEventEmitter mEmitter;
+    private ProgressTicker.ProgressBatch mBatch;
+
+    @Before
+    public void setUp() {
+        mReactContext = new FakeReactContext();
+        mEmitter = mReactContext.getDeviceEventEmitter();
+        mBatch = new ProgressTicker.ProgressBatch(mReactContext, mEmitter);
+    }
+
+    @Test
+    public void sendsEveryViewInOneEvent() {
+        for (int i = 0; i < 10; i++) {
+            mBatch.add(i, i * 1.5, i * 2.0, i == 3 ? new double[]{0, 4} : null);
+        }
+        mBatch.dispatch();
+
+        assertEquals(1, mEmitter.names.size());
+        assertEquals(ProgressTicker.EVENT_PROGRESS_BATCH, mEmitter.names.get(0));
+        TestWritableMap event = (TestWritableMap) mEmitter.getLastPayload();
+        TestWritableArray targets = (TestWritableArray) event.getArray(ProgressTicker.EVENT_PROP_TARGET);
+        TestWritableArray currentTimes = (TestWritableArray) event.getArray(ReactVideoView.EVENT_PROP_CURRENT_TIME);
+        TestWritableArray ranges = (TestWritableArray) event.getArray(ProgressTicker.EVENT_PROP_BUFFERED_RANGES);
+        assertEquals(10, targets.size());
+        assertEquals(9, targets.getInt(9));
+        assertEquals(13.5, currentTimes.getDouble(9), 0);
+        assertNull(ranges.get(0));
+        assertEquals(4, ranges.getArray(3).getDouble(1), 0);
+    }
+
+    @Test
+    public void sendsNothingWithoutSamples() {
+        mBatch.dispatch();
+
+        assertEquals(0, mEmitter.names.size());
+    }
+
+    @Test
+    public void holdsBackBatchesUntilJSReceivedThePreviousOne() {
+        mBatch.add(1, 1.0, 2.0, null);
+        mBatch.dispatch();
+        mBatch.add(1, 1.25, 2.0, null);
+        mBatch.dispatch();
+        assertEquals(1, mEmitter.names.size());
+
+        mReactContext.runJSQueue();
+        mBatch.add(1, 1.5, 2.0, null);
+        mBatch.dispatch();
+        assertEquals(2, mEmitter.names.size());
+        TestWritableMap event = (TestWritableMap) mEmitter.getLastPayload();
+        assertEquals(1.5, event.getArray(ReactVideoView.EVENT_PROP_CURRENT_TIME).getDouble(0), 0);
+    }
+
+    @Test
+    public void keepsRangesOfHeldBackBatchesForTheNextOne() {
+        mBatch.add(1, 1.0, 2.0, null);
+        mBatch.dispatch();
+        mBatch.add(1, 1.25, 2.0, new double[]{0, 3});
+        mBatch.add(2, 5.0, 6.0, null);
+        mBatch.dispatch();
+        mBatch.add(1, 1.5, 2.0, null);
+        mBatch.add(2, 5.25, 6.0, null);
+        mBatch.dispatch();
+        assertEquals(1, mEmitter.names.size());
+
+        mReactContext.runJSQueue();
+        mBatch.add(1, 1.75, 2.0, null);
+        mBatch.add(2, 5.5, 6.0, new double[]{0, 7});
+        mBatch.dispatch();
+        assertEquals(2, mEmitter.names.size());
+        TestWritableMap event = (TestWritableMap) mEmitter.getLastPayload();
+        TestWritableArray targets = (TestWritableArray) event.getArray(ProgressTicker.EVENT_PROP_TARGET);
+        TestWritableArray currentTimes = (TestWritableArray) event.getArray(ReactVideoView.EVENT_PROP_CURRENT_TIME);
+        TestWritableArray ranges = (TestWritableArray) event.getArray(ProgressTicker.EVENT_PROP_BUFFERED_RANGES);
+        assertEquals(2, targets.size());
+        assertEquals(1, targets.getInt(0));
+        assertEquals(1.75, currentTimes.getDouble(0), 0);
+        assertEquals(3, ranges.getArray(0).getDouble(1), 0);
+        assertEquals(2, targets.getInt(1));
+        assertEquals(7, ranges.getArray(1).getDouble(1), 0);
+    }
+}
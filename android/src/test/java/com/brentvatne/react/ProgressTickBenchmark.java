@@ -0,0 +1,204 @@
+package com.brentvatne.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Microbenchmarks of the hot paths on the main thread: the progress tick of playing views, both
+ * while JS still handles the previous batch and when it sends one, and reading the src prop. Each
+ * reports the time and the bytes allocated per operation, and fails if sampling views while their
+ * batch is held back starts to allocate.
+ *
+ * The numbers come from the host JVM, so they are only comparable with runs on the same machine.
+ * They are left out of the default test run; pass -Pbenchmarks to Gradle to run them.
+ */
+public class ProgressTickBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 200000;
+    private static final int EMITTING_ITERATIONS = 20000;
+    private static final int VIEWS = 4;
+
+    private static final VideoSource SOURCE = new VideoSource("http://example.com/video.mp4", "mp4", true, false);
+
+    @Rule
+    public TestArguments mArguments = new TestArguments();
+
+    @Test
+    public void sampleViewsWhileBatchIsHeldBack() {
+        FakeReactContext reactContext = new FakeReactContext();
+        ProgressTicker.ProgressBatch batch =
+                new ProgressTicker.ProgressBatch(reactContext, reactContext.getDeviceEventEmitter());
+        BufferedRanges[] ranges = new BufferedRanges[VIEWS];
+        for (int i = 0; i < VIEWS; i++) {
+            ranges[i] = new BufferedRanges();
+        }
+
+        // Keeps the batch in flight, so dispatching only holds back the samples.
+        batch.add(0, 0, 0, null);
+        batch.dispatch();
+
+        Measurement measurement = new Measurement();
+        for (int run = 0; run < 2; run++) {
+            int iterations = run == 0 ? WARMUP_ITERATIONS : ITERATIONS;
+            measurement.start();
+            for (int i = 0; i < iterations; i++) {
+                for (int view = 0; view < VIEWS; view++) {
+                    double currentTime = (i % 100) / 10.0;
+                    ranges[view].update(SOURCE, 10000, 50);
+                    batch.add(view, currentTime, ranges[view].getBufferedEnd(currentTime), ranges[view].takeChanged());
+                }
+                batch.dispatch();
+            }
+            measurement.stop(iterations);
+        }
+        measurement.report("held back progress tick of " + VIEWS + " views");
+
+        assertEquals(1, reactContext.getDeviceEventEmitter().names.size());
+        if (measurement.mBytes >= 0) {
+            assertTrue("Sampling allocates " + measurement.bytesPerOperation() + " bytes per tick",
+                    measurement.bytesPerOperation() < 1);
+        }
+    }
+
+    @Test
+    public void emitProgressOfPlayingViews() {
+        FakeReactContext reactContext = new FakeReactContext();
+        FakeDeviceEventEmitter emitter = reactContext.getDeviceEventEmitter();
+        ReactVideoViewManager manager = new ReactVideoViewManager();
+        MediaPlayerPool.getInstance().clear();
+        FakeMediaPlayer[] players = new FakeMediaPlayer[VIEWS];
+        ReactVideoView[] views = new ReactVideoView[VIEWS];
+        for (int i = 0; i < VIEWS; i++) {
+            players[i] = new FakeMediaPlayer();
+            MediaPlayerPool.getInstance().release(players[i]);
+        }
+        for (int i = 0; i < VIEWS; i++) {
+            views[i] = manager.createViewInstance(reactContext);
+            manager.setSrc(views[i], TestWritableMap.of(
+                    ReactVideoViewManager.PROP_SRC_URI, "http://example.com/video" + i + ".mp4",
+                    ReactVideoViewManager.PROP_SRC_TYPE, "mp4",
+                    ReactVideoViewManager.PROP_SRC_IS_NETWORK, true,
+                    ReactVideoViewManager.PROP_SRC_IS_ASSET, false));
+            manager.onAfterUpdateTransaction(views[i]);
+        }
+        for (FakeMediaPlayer player : players) {
+            player.prepared(60000);
+        }
+
+        try {
+            ProgressTicker.ProgressBatch batch = new ProgressTicker.ProgressBatch(reactContext, emitter);
+            Measurement measurement = new Measurement();
+            for (int run = 0; run < 2; run++) {
+                int iterations = run == 0 ? WARMUP_ITERATIONS / 10 : EMITTING_ITERATIONS;
+                emitter.names.clear();
+                emitter.payloads.clear();
+                measurement.start();
+                for (int i = 0; i < iterations; i++) {
+                    for (int view = 0; view < VIEWS; view++) {
+                        players[view].setCurrentPosition((i % 600) * 100);
+                        views[view].onProgressTick(batch);
+                    }
+                    batch.dispatch();
+                    // JS received the batch, so the next tick sends one as well.
+                    reactContext.runJSQueue();
+                }
+                measurement.stop(iterations);
+            }
+            measurement.report("emitting progress tick of " + VIEWS + " views");
+            System.out.println(String.format("emitting progress tick of %d views: %.0f bridge events/s",
+                    VIEWS, measurement.operationsPerSecond()));
+
+            assertEquals(EMITTING_ITERATIONS, emitter.names.size());
+        } finally {
+            for (ReactVideoView view : views) {
+                manager.onDropViewInstance(view);
+            }
+            MediaPlayerPool.getInstance().clear();
+        }
+    }
+
+    @Test
+    public void fromReadableMap() {
+        TestWritableMap src = TestWritableMap.of(
+                ReactVideoViewManager.PROP_SRC_URI, "http://example.com/video.mp4",
+                ReactVideoViewManager.PROP_SRC_TYPE, "mp4",
+                ReactVideoViewManager.PROP_SRC_IS_NETWORK, true,
+                ReactVideoViewManager.PROP_SRC_IS_ASSET, false,
+                ReactVideoViewManager.PROP_SRC_CACHE, true,
+                ReactVideoViewManager.PROP_SRC_HEADERS, TestWritableMap.of("Authorization", "Bearer token"));
+        VideoSource current = VideoSource.fromReadableMap(src);
+
+        Measurement measurement = new Measurement();
+        int matches = 0;
+        for (int run = 0; run < 2; run++) {
+            int iterations = run == 0 ? WARMUP_ITERATIONS : ITERATIONS;
+            measurement.start();
+            for (int i = 0; i < iterations; i++) {
+                // Reads the src prop and compares it with the current source, like a props update does.
+                VideoSource source = VideoSource.fromReadableMap(src);
+                if (source.hashCode() == current.hashCode() && source.equals(current)) {
+                    matches++;
+                }
+            }
+            measurement.stop(iterations);
+        }
+        measurement.report("VideoSource.fromReadableMap");
+
+        assertEquals(WARMUP_ITERATIONS + ITERATIONS, matches);
+    }
+
+    private static class Measurement {
+
+        private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+        private long mStartTime;
+        private long mStartBytes;
+        private long mTime;
+        private long mBytes;
+        private int mIterations;
+
+        private void start() {
+            mStartBytes = getAllocatedBytes();
+            mStartTime = System.nanoTime();
+        }
+
+        private void stop(final int iterations) {
+            mTime = System.nanoTime() - mStartTime;
+            long bytes = getAllocatedBytes();
+            mBytes = mStartBytes < 0 ? -1 : bytes - mStartBytes;
+            mIterations = iterations;
+        }
+
+        private double bytesPerOperation() {
+            return (double) mBytes / mIterations;
+        }
+
+        private double operationsPerSecond() {
+            return mIterations * 1e9 / mTime;
+        }
+
+        private void report(final String name) {
+            System.out.println(String.format("%s: %.1f ns/op, %s bytes/op", name, (double) mTime / mIterations,
+                    mBytes < 0 ? "?" : String.format("%.1f", bytesPerOperation())));
+        }
+
+        /**
+         * Returns the bytes allocated by the current thread so far, or -1 if the JVM doesn't count them.
+         */
+        private long getAllocatedBytes() {
+            if (mThreadBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) mThreadBean;
+                if (threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+                    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+            return -1;
+        }
+    }
+}
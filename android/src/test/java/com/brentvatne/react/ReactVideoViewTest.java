@@ -0,0 +1,147 @@
+package com.brentvatne.react;
+
+import com.brentvatne.react.ReactVideoView.Events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a view through the props of its manager like the bridge would, with a
+ * {@link FakeMediaPlayer} in place of the platform player.
+ */
+public class ReactVideoViewTest {
+
+    private static final String URI = "http://example.com/video.mp4";
+
+    @Rule
+    public TestArguments mArguments = new TestArguments();
+
+    private FakeReactContext mReactContext;
+    private FakeEventEmitter mEvents;
+    private FakeMediaPlayer mPlayer;
+    private ReactVideoViewManager mManager;
+    private ReactVideoView mView;
+
+    @Before
+    public void setUp() {
+        MediaPlayerPool.getInstance().clear();
+        mPlayer = new FakeMediaPlayer();
+        // The view leases the idle player when it loads its first source.
+        MediaPlayerPool.getInstance().release(mPlayer);
+
+        mReactContext = new FakeReactContext();
+        mEvents = mReactContext.getEventEmitter();
+        mManager = new ReactVideoViewManager();
+        mView = mManager.createViewInstance(mReactContext);
+    }
+
+    @After
+    public void tearDown() {
+        mManager.onDropViewInstance(mView);
+        MediaPlayerPool.getInstance().clear();
+    }
+
+    @Test
+    public void loadsSrcAndStartsPlaying() {
+        load();
+
+        TestWritableMap event = mEvents.getLast(Events.EVENT_LOAD.toString());
+        assertNotNull(event);
+        assertEquals(10, event.getDouble(ReactVideoView.EVENT_PROP_DURATION), 0);
+        assertTrue(mPlayer.isPlaying());
+        assertEquals(1, mPlayer.getStartCount());
+    }
+
+    @Test
+    public void followsThePausedProp() {
+        load();
+
+        mManager.setPaused(mView, true);
+        mManager.onAfterUpdateTransaction(mView);
+        assertFalse(mPlayer.isPlaying());
+
+        mManager.setPaused(mView, false);
+        mManager.onAfterUpdateTransaction(mView);
+        assertTrue(mPlayer.isPlaying());
+    }
+
+    @Test
+    public void keepsPlayingWhenSrcIsInvalid() {
+        load();
+
+        mManager.setSrc(mView, src(TestWritableMap.of("Authorization", 42)));
+        mManager.onAfterUpdateTransaction(mView);
+
+        TestWritableMap event = mEvents.getLast(Events.EVENT_ERROR.toString());
+        assertNotNull(event);
+        TestWritableMap error = (TestWritableMap) event.getMap(ReactVideoView.EVENT_PROP_ERROR);
+        assertTrue(error.getString(ReactVideoView.EVENT_PROP_MESSAGE).contains("Authorization"));
+        assertTrue(mPlayer.isPlaying());
+    }
+
+    @Test
+    public void sendsProgressInTheBatch() {
+        load();
+        mPlayer.setCurrentPosition(1500);
+
+        FakeDeviceEventEmitter emitter = mReactContext.getDeviceEventEmitter();
+        ProgressTicker.ProgressBatch batch = new ProgressTicker.ProgressBatch(mReactContext, emitter);
+        mView.onProgressTick(batch);
+        batch.dispatch();
+
+        assertEquals(ProgressTicker.EVENT_PROGRESS_BATCH, emitter.names.get(0));
+        TestWritableMap event = (TestWritableMap) emitter.getLastPayload();
+        assertEquals(mView.getId(), event.getArray(ProgressTicker.EVENT_PROP_TARGET).getInt(0));
+        assertEquals(1.5, event.getArray(ReactVideoView.EVENT_PROP_CURRENT_TIME).getDouble(0), 0);
+    }
+
+    @Test
+    public void stopsSendingProgressWhenCompleted() {
+        load();
+        mPlayer.completed();
+
+        assertTrue(mEvents.names.contains(Events.EVENT_END.toString()));
+        ProgressTicker.ProgressBatch batch =
+                new ProgressTicker.ProgressBatch(mReactContext, mReactContext.getDeviceEventEmitter());
+        mView.onProgressTick(batch);
+        batch.dispatch();
+        assertTrue(mReactContext.getDeviceEventEmitter().names.isEmpty());
+    }
+
+    @Test
+    public void givesThePlayerBackWhenDropped() {
+        load();
+
+        mManager.onDropViewInstance(mView);
+
+        assertFalse(mPlayer.isPlaying());
+        assertFalse(mPlayer.isReleased());
+        assertSame(mPlayer, MediaPlayerPool.getInstance().acquire());
+    }
+
+    /**
+     * Sets a playable src and lets the player finish preparing it.
+     */
+    private void load() {
+        mManager.setSrc(mView, src(TestWritableMap.of()));
+        mManager.onAfterUpdateTransaction(mView);
+        mPlayer.prepared(10000);
+    }
+
+    private static TestWritableMap src(final TestWritableMap headers) {
+        return TestWritableMap.of(
+                ReactVideoViewManager.PROP_SRC_URI, URI,
+                ReactVideoViewManager.PROP_SRC_TYPE, "mp4",
+                ReactVideoViewManager.PROP_SRC_IS_NETWORK, true,
+                ReactVideoViewManager.PROP_SRC_IS_ASSET, false,
+                ReactVideoViewManager.PROP_SRC_HEADERS, headers);
+    }
+}
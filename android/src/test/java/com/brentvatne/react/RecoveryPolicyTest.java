@@ -0,0 +1,65 @@
+package com.brentvatne.react;
+
+import android.media.MediaPlayer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecoveryPolicyTest {
+
+    @Test
+    public void doublesRetryDelayUpToMaximum() {
+        RecoveryPolicy policy = new RecoveryPolicy(5, 1000, 5000, 0);
+
+        assertEquals(1000, policy.getRetryDelay(1));
+        assertEquals(2000, policy.getRetryDelay(2));
+        assertEquals(4000, policy.getRetryDelay(3));
+        assertEquals(5000, policy.getRetryDelay(4));
+        assertEquals(5000, policy.getRetryDelay(50));
+    }
+
+    @Test
+    public void clampsInvalidSettings() {
+        RecoveryPolicy policy = new RecoveryPolicy(-1, 2000, 500, -10);
+
+        assertEquals(0, policy.getMaxRetries());
+        assertEquals(2000, policy.getRetryDelay(3));
+        assertEquals(0, policy.getStallTimeout());
+    }
+
+    @Test
+    public void readsDefaultsForMissingProps() {
+        RecoveryPolicy policy = RecoveryPolicy.fromReadableMap(TestWritableMap.of(RecoveryPolicy.PROP_MAX_RETRIES, 1));
+
+        assertEquals(1, policy.getMaxRetries());
+        assertEquals(RecoveryPolicy.DEFAULT_RETRY_DELAY_MS, policy.getRetryDelay(1));
+        assertEquals(RecoveryPolicy.DEFAULT_STALL_TIMEOUT_MS, policy.getStallTimeout());
+    }
+
+    @Test
+    public void classifiesErrors() {
+        assertEquals(RecoveryPolicy.CATEGORY_PLAYER,
+                RecoveryPolicy.classify(MediaPlayer.MEDIA_ERROR_SERVER_DIED, 0, true));
+        assertEquals(RecoveryPolicy.CATEGORY_NETWORK,
+                RecoveryPolicy.classify(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO, false));
+        assertEquals(RecoveryPolicy.CATEGORY_SOURCE,
+                RecoveryPolicy.classify(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_UNSUPPORTED, true));
+        assertEquals(RecoveryPolicy.CATEGORY_SOURCE, RecoveryPolicy.classify(200, 0, true));
+        assertEquals(RecoveryPolicy.CATEGORY_NETWORK,
+                RecoveryPolicy.classify(MediaPlayer.MEDIA_ERROR_UNKNOWN, Integer.MIN_VALUE, true));
+        assertEquals(RecoveryPolicy.CATEGORY_UNKNOWN,
+                RecoveryPolicy.classify(MediaPlayer.MEDIA_ERROR_UNKNOWN, Integer.MIN_VALUE, false));
+    }
+
+    @Test
+    public void onlyRetriesTransientFailures() {
+        assertTrue(RecoveryPolicy.isRetryable(RecoveryPolicy.CATEGORY_NETWORK));
+        assertTrue(RecoveryPolicy.isRetryable(RecoveryPolicy.CATEGORY_PLAYER));
+        assertTrue(RecoveryPolicy.isRetryable(RecoveryPolicy.CATEGORY_STALL));
+        assertFalse(RecoveryPolicy.isRetryable(RecoveryPolicy.CATEGORY_SOURCE));
+        assertFalse(RecoveryPolicy.isRetryable(RecoveryPolicy.CATEGORY_UNKNOWN));
+    }
+}
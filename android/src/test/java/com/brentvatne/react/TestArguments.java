@@ -0,0 +1,33 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * Makes the library build what it sends to JS from {@link TestWritableMap}s and
+ * {@link TestWritableArray}s for the duration of a test.
+ */
+public class TestArguments extends ExternalResource implements VideoArguments.Factory {
+
+    @Override
+    protected void before() {
+        VideoArguments.setFactory(this);
+    }
+
+    @Override
+    protected void after() {
+        VideoArguments.setFactory(null);
+    }
+
+    @Override
+    public WritableMap createMap() {
+        return new TestWritableMap();
+    }
+
+    @Override
+    public WritableArray createArray() {
+        return new TestWritableArray();
+    }
+}
@@ -0,0 +1,182 @@
+package com.brentvatne.react;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP origin on a local port, serving fixed bodies by path. Supports HEAD and single byte
+ * ranges, and closes the connection after every response.
+ */
+public class TestOrigin {
+
+    private final ServerSocket mServerSocket;
+    private final Map<String, byte[]> mBodies = new ConcurrentHashMap<String, byte[]>();
+    private final Map<String, AtomicInteger> mRequestCounts = new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicInteger mBytesServed = new AtomicInteger();
+    private final List<String> mRanges = new ArrayList<String>();
+    private int mSuccessesLeft = 0;
+    private volatile String mTotalLength = null;
+    private int mFailuresLeft = 0;
+
+    public TestOrigin() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!mServerSocket.isClosed()) {
+                    try {
+                        final Socket socket = mServerSocket.accept();
+                        new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                handle(socket);
+                            }
+                        }).start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        }, "TestOrigin");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public String url(final String path) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + path;
+    }
+
+    public void put(final String path, final byte[] body) {
+        mBodies.put(path, body);
+    }
+
+    public void put(final String path, final String body) {
+        put(path, body.getBytes());
+    }
+
+    /**
+     * Reports the given string as the total length in Content-Range headers, e.g. to send malformed
+     * ones.
+     */
+    public void setTotalLength(final String totalLength) {
+        mTotalLength = totalLength;
+    }
+
+    /**
+     * Makes the next count requests fail with a 503.
+     */
+    public void failNext(final int count) {
+        failAfter(0, count);
+    }
+
+    /**
+     * Makes count requests fail with a 503 after the next successes requests.
+     */
+    public synchronized void failAfter(final int successes, final int count) {
+        mSuccessesLeft = successes;
+        mFailuresLeft = count;
+    }
+
+    /**
+     * Returns the Range header of every request so far, or null for requests without one, in the
+     * order they were received.
+     */
+    public synchronized List<String> getRanges() {
+        return new ArrayList<String>(mRanges);
+    }
+
+    public int getRequestCount(final String path) {
+        AtomicInteger count = mRequestCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getBytesServed() {
+        return mBytesServed.get();
+    }
+
+    public void close() throws IOException {
+        mServerSocket.close();
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            String[] requestLine = reader.readLine().split(" ");
+            String range = null;
+            String line;
+            while ((line = reader.readLine()) != null && line.length() > 0) {
+                if (line.toLowerCase().startsWith("range:")) {
+                    range = line.substring("range:".length()).trim();
+                }
+            }
+            String path = requestLine[1];
+            mRequestCounts.putIfAbsent(path, new AtomicInteger());
+            mRequestCounts.get(path).incrementAndGet();
+
+            OutputStream out = socket.getOutputStream();
+            byte[] body = mBodies.get(path);
+            if (onRequest(range)) {
+                out.write("HTTP/1.1 503 Unavailable\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes());
+            } else if (body == null) {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes());
+            } else {
+                int start = 0;
+                int end = body.length - 1;
+                String status = "200 OK";
+                String contentRange = "";
+                if (range != null && range.startsWith("bytes=")) {
+                    String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                    start = Integer.parseInt(bounds[0]);
+                    if (bounds[1].length() > 0) {
+                        end = Math.min(end, Integer.parseInt(bounds[1]));
+                    }
+                    status = "206 Partial Content";
+                    contentRange = "Content-Range: bytes " + start + "-" + end + "/"
+                            + (mTotalLength != null ? mTotalLength : Integer.toString(body.length)) + "\r\n";
+                }
+                out.write(("HTTP/1.1 " + status + "\r\nContent-Type: video/mp4\r\nContent-Length: "
+                        + (end - start + 1) + "\r\n" + contentRange + "Connection: close\r\n\r\n").getBytes());
+                if (!"HEAD".equals(requestLine[0])) {
+                    // Counted first, so the client can't have the bytes before they are counted.
+                    mBytesServed.addAndGet(end - start + 1);
+                    out.write(body, start, end - start + 1);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    /**
+     * Records a request and returns whether it should fail.
+     */
+    private synchronized boolean onRequest(final String range) {
+        mRanges.add(range);
+        if (mSuccessesLeft > 0) {
+            mSuccessesLeft--;
+            return false;
+        }
+        if (mFailuresLeft > 0) {
+            mFailuresLeft--;
+            return true;
+        }
+        return false;
+    }
+}
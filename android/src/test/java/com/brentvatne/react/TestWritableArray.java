@@ -0,0 +1,126 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WritableArray backed by a plain list, for tests on the JVM where the bridge's native arrays can't
+ * be loaded. Numbers are stored as doubles, as they are sent to JS.
+ */
+public class TestWritableArray implements WritableArray {
+
+    private final List<Object> mValues = new ArrayList<Object>();
+
+    public static TestWritableArray of(final Object... values) {
+        TestWritableArray array = new TestWritableArray();
+        for (Object value : values) {
+            array.mValues.add(value instanceof Number ? (Object) ((Number) value).doubleValue() : value);
+        }
+        return array;
+    }
+
+    /* package */ static ReadableType typeOf(final Object value) {
+        if (value == null) {
+            return ReadableType.Null;
+        } else if (value instanceof Boolean) {
+            return ReadableType.Boolean;
+        } else if (value instanceof Double) {
+            return ReadableType.Number;
+        } else if (value instanceof String) {
+            return ReadableType.String;
+        } else if (value instanceof ReadableMap) {
+            return ReadableType.Map;
+        }
+        return ReadableType.Array;
+    }
+
+    public Object get(final int index) {
+        return mValues.get(index);
+    }
+
+    @Override
+    public int size() {
+        return mValues.size();
+    }
+
+    @Override
+    public boolean isNull(final int index) {
+        return mValues.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(final int index) {
+        return (Boolean) mValues.get(index);
+    }
+
+    @Override
+    public double getDouble(final int index) {
+        return (Double) mValues.get(index);
+    }
+
+    @Override
+    public int getInt(final int index) {
+        return ((Double) mValues.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(final int index) {
+        return (String) mValues.get(index);
+    }
+
+    @Override
+    public ReadableArray getArray(final int index) {
+        return (ReadableArray) mValues.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(final int index) {
+        return (ReadableMap) mValues.get(index);
+    }
+
+    @Override
+    public ReadableType getType(final int index) {
+        return typeOf(mValues.get(index));
+    }
+
+    @Override
+    public void pushNull() {
+        mValues.add(null);
+    }
+
+    @Override
+    public void pushBoolean(final boolean value) {
+        mValues.add(value);
+    }
+
+    @Override
+    public void pushDouble(final double value) {
+        mValues.add(value);
+    }
+
+    @Override
+    public void pushInt(final int value) {
+        mValues.add((double) value);
+    }
+
+    @Override
+    public void pushString(final String value) {
+        mValues.add(value);
+    }
+
+    @Override
+    public void pushArray(final WritableArray value) {
+        mValues.add(value);
+    }
+
+    @Override
+    public void pushMap(final WritableMap value) {
+        mValues.add(value);
+    }
+}
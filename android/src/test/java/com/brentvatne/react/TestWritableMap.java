@@ -0,0 +1,136 @@
+package com.brentvatne.react;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WritableMap backed by a plain map, for tests on the JVM where the bridge's native maps can't be
+ * loaded. Numbers are stored as doubles, as they are sent to JS.
+ */
+public class TestWritableMap implements WritableMap {
+
+    private final Map<String, Object> mValues = new LinkedHashMap<String, Object>();
+
+    public static TestWritableMap of(final Object... keysAndValues) {
+        TestWritableMap map = new TestWritableMap();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            Object value = keysAndValues[i + 1];
+            map.mValues.put((String) keysAndValues[i],
+                    value instanceof Number ? (Object) ((Number) value).doubleValue() : value);
+        }
+        return map;
+    }
+
+    public Object get(final String key) {
+        return mValues.get(key);
+    }
+
+    @Override
+    public boolean hasKey(final String key) {
+        return mValues.containsKey(key);
+    }
+
+    @Override
+    public boolean isNull(final String key) {
+        return mValues.get(key) == null;
+    }
+
+    @Override
+    public boolean getBoolean(final String key) {
+        return (Boolean) mValues.get(key);
+    }
+
+    @Override
+    public double getDouble(final String key) {
+        return (Double) mValues.get(key);
+    }
+
+    @Override
+    public int getInt(final String key) {
+        return ((Double) mValues.get(key)).intValue();
+    }
+
+    @Override
+    public String getString(final String key) {
+        return (String) mValues.get(key);
+    }
+
+    @Override
+    public ReadableArray getArray(final String key) {
+        return (ReadableArray) mValues.get(key);
+    }
+
+    @Override
+    public ReadableMap getMap(final String key) {
+        return (ReadableMap) mValues.get(key);
+    }
+
+    @Override
+    public ReadableType getType(final String key) {
+        return TestWritableArray.typeOf(mValues.get(key));
+    }
+
+    @Override
+    public ReadableMapKeySetIterator keySetIterator() {
+        final Iterator<String> keys = mValues.keySet().iterator();
+        return new ReadableMapKeySetIterator() {
+            @Override
+            public boolean hasNextKey() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public String nextKey() {
+                return keys.next();
+            }
+        };
+    }
+
+    @Override
+    public void putNull(final String key) {
+        mValues.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void putInt(final String key, final int value) {
+        mValues.put(key, (double) value);
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void putArray(final String key, final WritableArray value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void putMap(final String key, final WritableMap value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void merge(final ReadableMap source) {
+        mValues.putAll(((TestWritableMap) source).mValues);
+    }
+}
@@ -0,0 +1,190 @@
+package com.brentvatne.react;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VideoCacheProxyTest {
+
+    private static final int LENGTH = 2 * VideoCache.SEGMENT_SIZE + 1000;
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final byte[] mVideo = new byte[LENGTH];
+    private TestOrigin mOrigin;
+    private VideoCache mCache;
+    private VideoCacheProxy mProxy;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < LENGTH; i++) {
+            mVideo[i] = (byte) (i * 31);
+        }
+        mOrigin = new TestOrigin();
+        mOrigin.put("/video.mp4", mVideo);
+        mCache = new VideoCache(mFolder.newFolder("cache"), VideoCacheProxy.DEFAULT_MAX_BYTES);
+        mProxy = new VideoCacheProxy(mCache);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mProxy.shutdown();
+        mOrigin.close();
+    }
+
+    @Test
+    public void parsesByteRanges() {
+        assertRange(0, 99, "bytes=0-99", 1000);
+        assertRange(500, 999, "bytes=500-", 1000);
+        assertRange(500, 999, "bytes=500-5000", 1000);
+        assertRange(900, 999, "bytes=-100", 1000);
+        assertRange(0, 999, "bytes=-5000", 1000);
+
+        assertFalse(VideoCacheProxy.ByteRange.parse("bytes=1000-").isSatisfiable(1000));
+        assertFalse(VideoCacheProxy.ByteRange.parse("bytes=-0").isSatisfiable(1000));
+
+        assertNull(VideoCacheProxy.ByteRange.parse(null));
+        assertNull(VideoCacheProxy.ByteRange.parse("bytes=0-1,5-6"));
+        assertNull(VideoCacheProxy.ByteRange.parse("bytes=10-5"));
+        assertNull(VideoCacheProxy.ByteRange.parse("bytes=-"));
+        assertNull(VideoCacheProxy.ByteRange.parse("bytes=a-b"));
+        assertNull(VideoCacheProxy.ByteRange.parse("items=0-1"));
+    }
+
+    @Test
+    public void fillsSegmentsOnceAndServesThemFromCache() throws Exception {
+        String url = mProxy.getProxyUrl(mOrigin.url("/video.mp4"));
+
+        assertArrayEquals(mVideo, get(url, null, 200));
+        int bytesFromOrigin = mOrigin.getBytesServed();
+        assertEquals(LENGTH, bytesFromOrigin);
+
+        // The proxy finishes the response before it commits the last segment to the cache.
+        String key = VideoCache.keyFor(mOrigin.url("/video.mp4"));
+        long[] ranges = new long[4];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while ((mCache.getCachedRanges(key, ranges) != 2 || ranges[1] != LENGTH)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, mCache.getCachedRanges(key, ranges));
+        assertEquals(LENGTH, ranges[1]);
+
+        assertArrayEquals(mVideo, get(url, null, 200));
+        assertArrayEquals(Arrays.copyOfRange(mVideo, 1000, 2000), get(url, "bytes=1000-1999", 206));
+        assertEquals(bytesFromOrigin, mOrigin.getBytesServed());
+    }
+
+    @Test
+    public void servesSuffixRangeFromEnd() throws IOException {
+        String url = mProxy.getProxyUrl(mOrigin.url("/video.mp4"));
+
+        HttpURLConnection connection = open(url, "bytes=-100");
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes " + (LENGTH - 100) + "-" + (LENGTH - 1) + "/" + LENGTH,
+                connection.getHeaderField("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(mVideo, LENGTH - 100, LENGTH), read(connection));
+
+        assertEquals(416, open(url, "bytes=" + LENGTH + "-").getResponseCode());
+    }
+
+    @Test
+    public void passesThroughSourcesWithMalformedLength() throws IOException {
+        mOrigin.setTotalLength("12abc");
+        String url = mProxy.getProxyUrl(mOrigin.url("/video.mp4"));
+
+        assertArrayEquals(mVideo, get(url, null, 200));
+        assertNull(mCache.getMetadata(VideoCache.keyFor(mOrigin.url("/video.mp4"))));
+    }
+
+    @Test
+    public void refusesUrlsItDidNotHandOut() throws IOException {
+        String url = mProxy.getProxyUrl(mOrigin.url("/video.mp4"));
+        String otherUrl = URLEncoder.encode(mOrigin.url("/other.mp4"), "UTF-8");
+        String token = url.substring(url.indexOf("&token="));
+        String base = "http://127.0.0.1:" + mProxy.getPort() + "/?url=";
+
+        assertEquals(403, open(url.substring(0, url.indexOf("&token=")), null).getResponseCode());
+        assertEquals(403, open(base + otherUrl + token, null).getResponseCode());
+        assertEquals(403, open(base + otherUrl + "&token=" + "0", null).getResponseCode());
+        assertEquals(403, open("http://127.0.0.1:" + mProxy.getPort() + "/playlist.m3u8?session=0", null)
+                .getResponseCode());
+        assertEquals(0, mOrigin.getBytesServed());
+    }
+
+    @Test
+    public void servesRegisteredSessionsUntilClosed() throws IOException {
+        VideoCacheProxy.Session session = new VideoCacheProxy.Session() {
+            @Override
+            public void serve(final Map<String, String> params, final Map<String, String> headers,
+                              final OutputStream out, final boolean isHead) throws IOException {
+                VideoCacheProxy.writeStatus(out, 204, "No Content");
+            }
+        };
+        VideoCacheProxy.SessionHandle handle = mProxy.addSession(session, "playlist.m3u8");
+        String url = handle.getUrl();
+        // Sessions registered later don't push out one that is still in use.
+        for (int i = 0; i < 20; i++) {
+            mProxy.addSession(session, "playlist.m3u8");
+        }
+
+        assertEquals(204, open(url, null).getResponseCode());
+        assertEquals(403, open(url.replace("session=", "session=1"), null).getResponseCode());
+
+        handle.close();
+        assertEquals(404, open(url, null).getResponseCode());
+    }
+
+    private static void assertRange(final long first, final long last, final String header, final long length) {
+        VideoCacheProxy.ByteRange range = VideoCacheProxy.ByteRange.parse(header);
+        assertTrue(header, range.isSatisfiable(length));
+        assertEquals(header, first, range.getFirst(length));
+        assertEquals(header, last, range.getLast(length));
+    }
+
+    private static byte[] get(final String url, final String range, final int statusCode) throws IOException {
+        HttpURLConnection connection = open(url, range);
+        assertEquals(statusCode, connection.getResponseCode());
+        return read(connection);
+    }
+
+    private static HttpURLConnection open(final String url, final String range) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        return connection;
+    }
+
+    private static byte[] read(final HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return body.toByteArray();
+    }
+}
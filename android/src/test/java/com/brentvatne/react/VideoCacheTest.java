@@ -0,0 +1,136 @@
+package com.brentvatne.react;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VideoCacheTest {
+
+    private static final String KEY = VideoCache.keyFor("http://example.com/video.mp4");
+    private static final long LENGTH = 3L * VideoCache.SEGMENT_SIZE - 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = mFolder.newFolder("cache");
+    }
+
+    @Test
+    public void reportsRunsOfCachedSegments() throws IOException {
+        VideoCache cache = new VideoCache(mDirectory, Long.MAX_VALUE);
+        long[] ranges = new long[8];
+        assertEquals(-1, cache.getCachedRanges(KEY, ranges));
+
+        cache.putMetadata(KEY, new VideoCache.Metadata(LENGTH, "video/mp4"));
+        assertEquals(0, cache.getCachedRanges(KEY, ranges));
+
+        putSegment(cache, 0, VideoCache.SEGMENT_SIZE);
+        putSegment(cache, 2, LENGTH - 2L * VideoCache.SEGMENT_SIZE);
+        assertEquals(4, cache.getCachedRanges(KEY, ranges));
+        assertArrayEquals(new long[]{0, VideoCache.SEGMENT_SIZE, 2L * VideoCache.SEGMENT_SIZE, LENGTH},
+                Arrays.copyOf(ranges, 4));
+
+        putSegment(cache, 1, VideoCache.SEGMENT_SIZE);
+        assertEquals(2, cache.getCachedRanges(KEY, ranges));
+        assertEquals(LENGTH, ranges[1]);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedSegments() throws IOException {
+        VideoCache cache = new VideoCache(mDirectory, 2L * VideoCache.SEGMENT_SIZE);
+        putSegment(cache, 0, VideoCache.SEGMENT_SIZE);
+        putSegment(cache, 1, VideoCache.SEGMENT_SIZE);
+        cache.getSegment(KEY, 0);
+
+        putSegment(cache, 2, VideoCache.SEGMENT_SIZE);
+        assertTrue(cache.hasSegment(KEY, 0));
+        assertFalse(cache.hasSegment(KEY, 1));
+        assertTrue(cache.hasSegment(KEY, 2));
+        assertEquals(2L * VideoCache.SEGMENT_SIZE, cache.getSize());
+        assertFalse(new File(new File(mDirectory, KEY), "1.seg").exists());
+
+        cache.setMaxBytes(VideoCache.SEGMENT_SIZE);
+        assertEquals(VideoCache.SEGMENT_SIZE, cache.getSize());
+        assertNull(cache.getSegment(KEY, 0));
+        assertTrue(cache.hasSegment(KEY, 2));
+    }
+
+    @Test
+    public void keepsSegmentsAndMaxBytesAcrossRestarts() throws IOException {
+        VideoCache cache = new VideoCache(mDirectory, Long.MAX_VALUE);
+        cache.putMetadata(KEY, new VideoCache.Metadata(LENGTH, "video/mp4"));
+        putSegment(cache, 0, VideoCache.SEGMENT_SIZE);
+        cache.setMaxBytes(5L * VideoCache.SEGMENT_SIZE);
+
+        VideoCache reopened = new VideoCache(mDirectory, VideoCacheProxy.DEFAULT_MAX_BYTES);
+        assertEquals(5L * VideoCache.SEGMENT_SIZE, reopened.getMaxBytes());
+        assertTrue(reopened.hasSegment(KEY, 0));
+        assertEquals(LENGTH, reopened.getMetadata(KEY).getLength());
+        assertEquals("video/mp4", reopened.getMetadata(KEY).getContentType());
+
+        reopened.clear();
+        assertEquals(0, reopened.getSize());
+        assertNull(reopened.getMetadata(KEY));
+        assertEquals(5L * VideoCache.SEGMENT_SIZE, new VideoCache(mDirectory, 0).getMaxBytes());
+    }
+
+    @Test(timeout = 5000)
+    public void readsRangesWhileAWriteHoldsTheLock() throws Exception {
+        final VideoCache cache = new VideoCache(mDirectory, Long.MAX_VALUE);
+        cache.putMetadata(KEY, new VideoCache.Metadata(LENGTH, "video/mp4"));
+        putSegment(cache, 0, VideoCache.SEGMENT_SIZE);
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (cache) {
+                    locked.countDown();
+                    try {
+                        done.await();
+                    } catch (InterruptedException e) {
+                        // Exit.
+                    }
+                }
+            }
+        });
+        writer.start();
+        locked.await();
+        try {
+            assertEquals(2, cache.getCachedRanges(KEY, new long[8]));
+            assertEquals(LENGTH, cache.getMetadata(KEY).getLength());
+        } finally {
+            done.countDown();
+            writer.join();
+        }
+    }
+
+    private static void putSegment(final VideoCache cache, final int index, final long length) throws IOException {
+        File tempFile = cache.createTempFile(KEY);
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(new byte[(int) length]);
+        } finally {
+            out.close();
+        }
+        cache.putSegment(KEY, index, tempFile);
+    }
+}
@@ -0,0 +1,73 @@
+package com.brentvatne.react;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SystemClock is stubbed to return 0 on the JVM, so every snapshot is taken at elapsed time 0.
+ */
+public class VideoClockTest {
+
+    @After
+    public void tearDown() {
+        VideoClock.remove(1);
+    }
+
+    @Test
+    public void extrapolatesAtRate() {
+        assertEquals(1500, new VideoClock(1000, 10000, 1.0f, VideoClock.REASON_PLAY).getPosition(500));
+        assertEquals(2000, new VideoClock(1000, 10000, 2.0f, VideoClock.REASON_RATE).getPosition(500));
+        assertEquals(1250, new VideoClock(1000, 10000, 0.5f, VideoClock.REASON_RATE).getPosition(500));
+    }
+
+    @Test
+    public void standsStillWhilePaused() {
+        VideoClock clock = new VideoClock(1000, 10000, 0.0f, VideoClock.REASON_PAUSE);
+
+        assertFalse(clock.isPlaying());
+        assertEquals(1000, clock.getPosition(5000));
+    }
+
+    @Test
+    public void stopsAtEndOfVideo() {
+        VideoClock clock = new VideoClock(9000, 10000, 1.0f, VideoClock.REASON_PLAY);
+
+        assertTrue(clock.isPlaying());
+        assertEquals(10000, clock.getPosition(5000));
+        assertEquals(14000, new VideoClock(9000, 0, 1.0f, VideoClock.REASON_PLAY).getPosition(5000));
+    }
+
+    @Test
+    public void wrapsAroundWhileLooping() {
+        VideoClock clock = new VideoClock(9000, 10000, 1.0f, true, VideoClock.REASON_LOOP);
+
+        assertTrue(clock.isLooping());
+        assertEquals(9500, clock.getPosition(500));
+        assertEquals(4000, clock.getPosition(5000));
+        assertEquals(4000, clock.getPosition(25000));
+        assertEquals(9000, new VideoClock(9000, 10000, 0.0f, true, VideoClock.REASON_PAUSE).getPosition(5000));
+    }
+
+    @Test
+    public void doesNotRewindBeforeSnapshot() {
+        assertEquals(1000, new VideoClock(1000, 10000, 1.0f, VideoClock.REASON_PLAY).getPosition(-500));
+    }
+
+    @Test
+    public void keepsLatestSnapshotPerTag() {
+        VideoClock first = new VideoClock(0, 10000, 1.0f, VideoClock.REASON_LOAD);
+        VideoClock second = new VideoClock(500, 10000, 0.0f, VideoClock.REASON_PAUSE);
+        VideoClock.publish(1, first);
+        VideoClock.publish(1, second);
+
+        assertSame(second, VideoClock.get(1));
+        VideoClock.remove(1);
+        assertNull(VideoClock.get(1));
+    }
+}
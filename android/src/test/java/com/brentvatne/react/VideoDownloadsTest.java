@@ -0,0 +1,110 @@
+package com.brentvatne.react;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class VideoDownloadsTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TestOrigin mOrigin;
+    private VideoDownloads mDownloads;
+
+    @Before
+    public void setUp() throws IOException {
+        mOrigin = new TestOrigin();
+        mDownloads = new VideoDownloads(mFolder.newFolder("downloads"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mOrigin.close();
+    }
+
+    @Test
+    public void downloadsInChunks() throws Exception {
+        byte[] video = createVideo(2 * VideoDownloads.CHUNK_SIZE + 1000);
+        mOrigin.put("/video.mp4", video);
+
+        String url = mOrigin.url("/video.mp4");
+        mDownloads.download(new VideoSource(url, "mp4", true, false), NO_HEADERS);
+
+        assertArrayEquals(video, read(awaitCompletedFile(url)));
+        // A probe for the length, then one request per chunk.
+        assertEquals(4, mOrigin.getRequestCount("/video.mp4"));
+    }
+
+    @Test
+    public void fetchesOtherChunksWhileFailedOnesWaitForTheirRetry() throws Exception {
+        byte[] video = createVideo(VideoDownloads.MAX_CONNECTIONS * VideoDownloads.CHUNK_SIZE + 1000);
+        mOrigin.put("/video.mp4", video);
+        // The probe succeeds, the first chunk on every connection fails.
+        mOrigin.failAfter(1, VideoDownloads.MAX_CONNECTIONS);
+
+        String url = mOrigin.url("/video.mp4");
+        mDownloads.download(new VideoSource(url, "mp4", true, false), NO_HEADERS);
+
+        assertArrayEquals(video, read(awaitCompletedFile(url)));
+        List<String> ranges = mOrigin.getRanges();
+        assertEquals(1 + 2 * VideoDownloads.MAX_CONNECTIONS + 1, ranges.size());
+        // Every chunk is asked for once before the first retry goes out, whichever connection
+        // happens to get there first.
+        int firstRetry = 1;
+        while (ranges.indexOf(ranges.get(firstRetry)) == firstRetry) {
+            firstRetry++;
+        }
+        assertEquals(1 + VideoDownloads.MAX_CONNECTIONS + 1, firstRetry);
+    }
+
+    private File awaitCompletedFile(final String url) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        File file;
+        while ((file = mDownloads.getCompletedFile(url)) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNotNull("Download of " + url + " didn't complete", file);
+        return file;
+    }
+
+    private static byte[] createVideo(final int length) {
+        byte[] video = new byte[length];
+        for (int i = 0; i < length; i++) {
+            video[i] = (byte) (i * 31);
+        }
+        return video;
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package com.brentvatne.react;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VideoSourceTest {
+
+    @Test
+    public void readsHeaders() {
+        VideoSource source = VideoSource.fromReadableMap(src(TestWritableMap.of("Authorization", "Bearer token")));
+
+        assertEquals(new VideoSource("http://example.com/video.mp4", "mp4", true, false, false, 0,
+                VideoSource.UNKNOWN_LENGTH, Collections.singletonMap("Authorization", "Bearer token")), source);
+        assertNotEquals(VideoSource.fromReadableMap(src(TestWritableMap.of())), source);
+    }
+
+    @Test
+    public void rejectsHeadersThatAreNotStrings() {
+        assertRejected(TestWritableMap.of("Accept", "video/*", "X-Retry", 3), "X-Retry", "number 3.0");
+        assertRejected(TestWritableMap.of("X-Debug", true), "X-Debug", "boolean true");
+        assertRejected(TestWritableMap.of("X-Empty", null), "X-Empty", "null");
+        assertRejected(TestWritableMap.of("X-Nested", TestWritableMap.of()), "X-Nested", "map");
+    }
+
+    private static void assertRejected(final TestWritableMap headers, final String name, final String value) {
+        try {
+            VideoSource.fromReadableMap(src(headers));
+            fail("Accepted " + name);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(name));
+            assertTrue(e.getMessage(), e.getMessage().endsWith(value));
+        }
+    }
+
+    private static TestWritableMap src(final TestWritableMap headers) {
+        return TestWritableMap.of(
+                ReactVideoViewManager.PROP_SRC_URI, "http://example.com/video.mp4",
+                ReactVideoViewManager.PROP_SRC_TYPE, "mp4",
+                ReactVideoViewManager.PROP_SRC_IS_NETWORK, true,
+                ReactVideoViewManager.PROP_SRC_IS_ASSET, false,
+                ReactVideoViewManager.PROP_SRC_HEADERS, headers);
+    }
+}